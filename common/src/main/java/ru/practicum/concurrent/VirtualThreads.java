@@ -0,0 +1,74 @@
+package ru.practicum.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads for code compiled for Java 11. The methods are looked up reflectively so the services
+ * still build and run on older runtimes; creating a virtual thread there fails with {@link IllegalStateException}.
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method NAME = method("java.lang.Thread$Builder", "name", String.class, long.class);
+    private static final Method FACTORY = method("java.lang.Thread$Builder", "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method(Executors.class, "newThreadPerTaskExecutor",
+            ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns a factory of virtual threads named {@code prefix} followed by a sequence number.
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        requireSupported();
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 1L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create a virtual thread factory", e);
+        }
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory threadFactory = threadFactory(prefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+
+    private static void requireSupported() {
+        if (!isSupported()) {
+            throw new IllegalStateException(String.format("Virtual threads require Java 21 or newer, running on %s",
+                    System.getProperty("java.version")));
+        }
+    }
+
+    private static Method method(String className, String name, Class<?>... parameterTypes) {
+        try {
+            return method(Class.forName(className), name, parameterTypes);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs HTTP request handling on virtual threads instead of the Tomcat worker pool. Requires Java 21. Each service
+ * maps its own switch to {@code virtual-threads.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig {
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-virtual-"));
+            log.info("Requests are handled on virtual threads");
+        };
+    }
+}
@@ -3,7 +3,6 @@ package ru.practicum.category;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
@@ -14,6 +13,7 @@ import ru.practicum.category.dto.NewCategoryDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.category.model.CategoryMapper;
 import ru.practicum.utils.Constants;
+import ru.practicum.utils.OffsetPageRequest;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
@@ -56,7 +56,7 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public List<CategoryDto> getCategories(int from, int size) {
         Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
+        Pageable page = OffsetPageRequest.ofOffset(from, size, sortById);
         List<Category> categories = categoryStorage.findAll(page).getContent();
         log.info("Received {} categories", categories.size());
         return CategoryMapper.toCategoryDto(categories);
@@ -0,0 +1,81 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.model.ConfirmedRequestsDrift;
+import ru.practicum.event.model.Event;
+import ru.practicum.request.ParticipationRequestStorage;
+import ru.practicum.request.model.EventRequestsCount;
+import ru.practicum.request.model.RequestStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Compares events.confirmed_requests with the number of confirmed participation requests and, if enabled,
+ * repairs the counters that drifted.
+ */
+@Component
+@Slf4j
+public class ConfirmedRequestsReconciler {
+    private final EventStorage eventStorage;
+    private final ParticipationRequestStorage requestStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftedEvents;
+    private final boolean fix;
+
+    public ConfirmedRequestsReconciler(EventStorage eventStorage, ParticipationRequestStorage requestStorage,
+                                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                       @Value("${ewm.confirmed-requests.reconcile.fix}") boolean fix) {
+        this.eventStorage = eventStorage;
+        this.requestStorage = requestStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.driftedEvents = Counter.builder("ewm.confirmed_requests.drift")
+                .description("Events whose confirmed requests counter didn't match confirmed requests")
+                .register(meterRegistry);
+        this.fix = fix;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ewm.confirmed-requests.reconcile.cron}")
+    public void reconcile() {
+        List<ConfirmedRequestsDrift> drifts = eventStorage.findConfirmedRequestsDrift(RequestStatus.CONFIRMED);
+        if (drifts.isEmpty()) {
+            return;
+        }
+
+        driftedEvents.increment(drifts.size());
+        drifts.forEach(drift -> log.warn("Confirmed requests counter of event with id = {} is {}, but {} requests are "
+                + "confirmed", drift.getEventId(), drift.getRecorded(), drift.getActual()));
+
+        if (fix) {
+            List<Long> eventIds = drifts.stream()
+                    .map(ConfirmedRequestsDrift::getEventId)
+                    .sorted()
+                    .collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> fixCounters(eventIds));
+            log.info("Fixed confirmed requests counters of {} events", eventIds.size());
+        }
+    }
+
+    private void fixCounters(List<Long> eventIds) {
+        List<Event> events = eventIds.stream()
+                .map(eventStorage::findWithLockById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+        Map<Long, Long> confirmed = requestStorage.countByEventIdsAndStatus(eventIds, RequestStatus.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestsCount::getEventId, EventRequestsCount::getCount));
+
+        events.forEach(event -> event.setConfirmedRequests(confirmed.getOrDefault(event.getId(), 0L).intValue()));
+    }
+}
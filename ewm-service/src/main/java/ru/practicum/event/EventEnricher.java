@@ -0,0 +1,163 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.concurrent.VirtualThreads;
+import ru.practicum.event.dto.EventDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventState;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fills views of event DTOs. The stats lookup runs on a bounded pool and is given a deadline: if the stats service
+ * is slow or the pool is saturated, views are left at 0 and marked unavailable instead of failing the request.
+ * With virtual threads each lookup gets its own thread, and only the number of lookups in flight is bounded.
+ */
+@Component
+@Slf4j
+public class EventEnricher {
+    private static final String THREAD_PREFIX = "event-enrichment-";
+    private final EventViewsCache eventViewsCache;
+    private final ExecutorService executor;
+    private final Semaphore lookupPermits;
+    private final long timeoutMs;
+    private final Timer viewsTimer;
+    private final Timer totalTimer;
+    private final Counter degraded;
+
+    @Autowired
+    public EventEnricher(EventViewsCache eventViewsCache, MeterRegistry meterRegistry,
+                         @Value("${ewm.enrichment.threads}") int threads,
+                         @Value("${ewm.enrichment.queue-capacity}") int queueCapacity,
+                         @Value("${ewm.enrichment.max-concurrent-lookups}") int maxConcurrentLookups,
+                         @Value("${ewm.enrichment.views-timeout-ms}") long timeoutMs,
+                         @Value("${ewm.virtual-threads.enabled}") boolean virtualThreads) {
+        this(eventViewsCache, meterRegistry,
+                virtualThreads ? VirtualThreads.newThreadPerTaskExecutor(THREAD_PREFIX) : pool(threads, queueCapacity),
+                virtualThreads ? new Semaphore(maxConcurrentLookups) : null, timeoutMs);
+    }
+
+    /**
+     * Lookups beyond the executor's own bounds are rejected when {@code lookupPermits} is given and has none left.
+     */
+    EventEnricher(EventViewsCache eventViewsCache, MeterRegistry meterRegistry, ExecutorService executor,
+                  Semaphore lookupPermits, long timeoutMs) {
+        this.eventViewsCache = eventViewsCache;
+        this.timeoutMs = timeoutMs;
+        this.executor = executor;
+        this.lookupPermits = lookupPermits;
+        this.viewsTimer = Timer.builder("ewm.events.enrichment")
+                .description("Time spent enriching events, by phase")
+                .tag("phase", "views")
+                .register(meterRegistry);
+        this.totalTimer = Timer.builder("ewm.events.enrichment")
+                .description("Time spent enriching events, by phase")
+                .tag("phase", "total")
+                .register(meterRegistry);
+        this.degraded = Counter.builder("ewm.events.enrichment.degraded")
+                .description("Enrichments that returned events without views")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sets views of the published events among the given ones.
+     */
+    public void fillViews(Collection<? extends EventDto> eventDtos, Collection<Event> events) {
+        Map<Long, LocalDateTime> publishedOn = events.stream()
+                .filter(event -> event.getState().equals(EventState.PUBLISHED))
+                .collect(Collectors.toMap(Event::getId, Event::getPublishedOn, (first, second) -> first));
+
+        if (publishedOn.isEmpty()) {
+            return;
+        }
+
+        Map<Long, EventDto> dtoById = eventDtos.stream()
+                .collect(Collectors.toMap(EventDto::getId, Function.identity(), (first, second) -> first));
+        totalTimer.record(() -> {
+            Map<Long, Integer> views = loadViews(publishedOn);
+            publishedOn.keySet().forEach(eventId -> {
+                EventDto eventDto = dtoById.get(eventId);
+                if (views == null) {
+                    eventDto.setViews(0);
+                    eventDto.setViewsUnavailable(true);
+                } else {
+                    eventDto.setViews(views.getOrDefault(eventId, 0));
+                }
+            });
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService pool(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_PREFIX + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private Map<Long, Integer> loadViews(Map<Long, LocalDateTime> publishedOn) {
+        if (lookupPermits != null && !lookupPermits.tryAcquire()) {
+            degraded.increment();
+            log.warn("Too many views lookups in flight, {} events returned without views", publishedOn.size());
+            return null;
+        }
+
+        Future<Map<Long, Integer>> views;
+        try {
+            views = executor.submit(() -> {
+                try {
+                    return viewsTimer.recordCallable(() -> eventViewsCache.getViews(publishedOn));
+                } finally {
+                    releasePermit();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releasePermit();
+            degraded.increment();
+            log.warn("Enrichment pool is saturated, {} events returned without views", publishedOn.size());
+            return null;
+        }
+
+        try {
+            return views.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            views.cancel(true);
+            log.warn("Views of {} events were not loaded in {} ms", publishedOn.size(), timeoutMs);
+        } catch (ExecutionException e) {
+            log.warn("Failed to load views of {} events: {}", publishedOn.size(), e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        degraded.increment();
+        return null;
+    }
+
+    private void releasePermit() {
+        if (lookupPermits != null) {
+            lookupPermits.release();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.dto.EventFullDto;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent reads of the same public event share one load. The first caller runs the loader in its own
+ * read-only transaction, the others wait for its result without holding a database connection and get the same
+ * DTO instance, so callers must not modify it.
+ */
+@Component
+public class EventLoadCoalescer {
+    private final Map<Long, CompletableFuture<EventFullDto>> inFlight = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final Counter coalesced;
+
+    public EventLoadCoalescer(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.coalesced = Counter.builder("ewm.events.loads.coalesced")
+                .description("Event loads served by a load already in flight for the same event")
+                .register(meterRegistry);
+    }
+
+    public EventFullDto load(long eventId, Supplier<EventFullDto> loader) {
+        CompletableFuture<EventFullDto> flight = new CompletableFuture<>();
+        CompletableFuture<EventFullDto> existing = inFlight.putIfAbsent(eventId, flight);
+
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            EventFullDto eventDto = transactionTemplate.execute(status -> loader.get());
+            flight.complete(eventDto);
+            return eventDto;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(eventId, flight);
+        }
+    }
+
+    private EventFullDto await(CompletableFuture<EventFullDto> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -17,9 +17,10 @@ public interface EventService {
 
     EventFullDto updateEventByAdmin(long eventId, UpdateEventAdminRequest newEventDto);
 
-    List<EventFullDto> getEvents(AdminSearchParameters parameters, int from, int size);
+    EventPage<EventFullDto> getEvents(AdminSearchParameters parameters, int from, int size, String cursor);
 
-    List<EventShortDto> getEvents(HttpServletRequest request, PublicSearchParameters parameters, int from, int size);
+    EventPage<EventShortDto> getEvents(HttpServletRequest request, PublicSearchParameters parameters, int from, int size,
+                                       String cursor);
 
     EventFullDto getEventById(long eventId, HttpServletRequest request);
 
@@ -27,7 +28,9 @@ public interface EventService {
 
     EventRequestStatusUpdateResult updateRequestStatus(long userId, long eventId, EventRequestStatusUpdateRequest updateRequest);
 
-    List<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, long friendId, int from, int size);
+    EventPage<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, long friendId, int from,
+                                             int size, String cursor);
 
-    List<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, int from, int size, boolean onlyFriends);
+    EventPage<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, int from, int size,
+                                             String cursor, boolean onlyFriends);
 }
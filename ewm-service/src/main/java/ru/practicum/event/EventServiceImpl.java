@@ -1,22 +1,25 @@
 package ru.practicum.event;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.NumberPath;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
-import ru.practicum.StatsClient;
+import ru.practicum.StatsHitSender;
 import ru.practicum.category.CategoryStorage;
 import ru.practicum.category.model.Category;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.model.*;
+import ru.practicum.event.search.EventSearchIndex;
 import ru.practicum.exception.DataModificationProhibitedException;
 import ru.practicum.request.ParticipationRequestStorage;
 import ru.practicum.request.dto.ParticipationRequestDto;
@@ -27,6 +30,7 @@ import ru.practicum.user.UserStorage;
 import ru.practicum.user.dto.UserDto;
 import ru.practicum.user.model.*;
 import ru.practicum.utils.Constants;
+import ru.practicum.utils.OffsetPageRequest;
 import ru.practicum.utils.Validator;
 
 import javax.persistence.EntityNotFoundException;
@@ -45,13 +49,19 @@ import static ru.practicum.utils.Converter.*;
 @Slf4j
 @RequiredArgsConstructor
 public class EventServiceImpl implements EventService {
+    private static final int INDEX_ID_CHUNK_SIZE = 1000;
+
     private final EventStorage eventStorage;
     private final UserStorage userStorage;
     private final CategoryStorage categoryStorage;
     private final LocationStorage locationStorage;
     private final ParticipationRequestStorage requestStorage;
     private final FriendshipStorage friendshipStorage;
-    private final StatsClient statsClient;
+    private final StatsHitSender statsHitSender;
+    private final EventEnricher eventEnricher;
+    private final EventLoadCoalescer eventLoadCoalescer;
+    private final EventTextSearch eventTextSearch;
+    private final EventSearchIndex eventSearchIndex;
     private final FriendshipService friendshipService;
 
     @Override
@@ -80,11 +90,11 @@ public class EventServiceImpl implements EventService {
     @Transactional(isolation = Isolation.REPEATABLE_READ)
     public List<EventShortDto> getUserEvents(long userId, int from, int size) {
         Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
+        Pageable page = OffsetPageRequest.ofOffset(from, size, sortById);
 
         List<Event> events = eventStorage.findByInitiator_Id(userId, page).getContent();
         List<EventShortDto> eventDtos = EventMapper.toEventShortDto(events);
-        fillEventDtoList(eventDtos, getEarliestPublishDate(events));
+        fillEventDtoList(eventDtos, events);
 
         log.info("Received {} events of user with id = {}", events.size(), userId);
         return sortEvents(eventDtos, SortType.VIEWS);
@@ -131,64 +141,70 @@ public class EventServiceImpl implements EventService {
         }
 
         eventStorage.save(event);
+        eventSearchIndex.update(event);
         log.info("Updated event with id = {} by admin", eventId);
         return composeEventFullDto(event);
     }
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public List<EventFullDto> getEvents(AdminSearchParameters parameters, int from, int size) {
+    public EventPage<EventFullDto> getEvents(AdminSearchParameters parameters, int from, int size, String cursor) {
         Validator.validateStartAndEndDates(parameters.getRangeStart(), parameters.getRangeEnd());
-        Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
         BooleanBuilder builder = new BooleanBuilder();
         composeSearchPredicate(builder, parameters);
-        List<Event> events;
-
-        if (builder.getValue() == null) {
-            events = eventStorage.findAll(page).getContent();
-        } else {
-            events = eventStorage.findAll(builder.getValue(), page).getContent();
-        }
+        EventPage<Event> page = findPage(eventStorage::findSlice, builder, Keyset.byId(QEvent.event.id, Event::getId),
+                from, size, decodeCursor(cursor));
+        List<Event> events = page.getContent();
 
         List<EventFullDto> eventFullDtos = EventMapper.toEventFullDto(events);
-        fillEventDtoList(eventFullDtos, getEarliestPublishDate(events));
+        fillEventDtoList(eventFullDtos, events);
         log.info("Received {} events by admin", events.size());
-        return eventFullDtos;
+        return new EventPage<>(eventFullDtos, page.getNextCursor());
     }
 
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public EventFullDto getEventById(long eventId, HttpServletRequest request) {
         saveStatistics(request);
-        Event event = getEventByEventId(eventId, true);
+        EventFullDto eventDto = eventLoadCoalescer.load(eventId,
+                () -> composeEventFullDto(getEventByEventId(eventId, true)));
         log.info("Received event with id = {}", eventId);
-        return composeEventFullDto(event);
+        return eventDto;
     }
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public List<EventShortDto> getEvents(HttpServletRequest request, PublicSearchParameters parameters, int from, int size) {
+    public EventPage<EventShortDto> getEvents(HttpServletRequest request, PublicSearchParameters parameters, int from,
+                                              int size, String cursor) {
         saveStatistics(request);
         Validator.validateStartAndEndDates(parameters.getRangeStart(), parameters.getRangeEnd());
-        Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
-        BooleanBuilder builder = new BooleanBuilder();
-        composeSearchPredicate(builder, parameters);
-
-        List<Event> events = eventStorage.findAll(builder.getValue(), page).getContent();
-        List<EventShortDto> eventShortDtos = EventMapper.toEventShortDto(events);
-        fillEventDtoList(eventShortDtos, getEarliestPublishDate(events));
+        SortType sortType = parameters.getSort() == null ? null : convertStringToSortType(parameters.getSort());
+        EventCursor eventCursor = decodeCursor(cursor);
+        EventPage<Event> page;
 
-        if (parameters.isOnlyAvailable()) {
-            filterNotAvailableEvents(events, eventShortDtos);
+        if (!isBlank(parameters.getText()) && eventSearchIndex.isReady()) {
+            page = findEventsInSearchIndex(parameters, sortType, from, size, eventCursor);
+        } else {
+            BooleanBuilder builder = new BooleanBuilder();
+            composeSearchPredicate(builder, parameters);
+            Keyset<Event> keyset = Keyset.byId(QEvent.event.id, Event::getId);
+            if (sortType == SortType.RELEVANCE && !isBlank(parameters.getText()) && eventTextSearch.isFullText()) {
+                keyset = byRelevance(parameters.getText());
+            } else if (sortType == SortType.VIEWS) {
+                keyset = byViews();
+            }
+            page = findPage(eventStorage::findSlice, builder, keyset, from, size, eventCursor);
         }
 
+        List<Event> events = page.getContent();
+
+        List<EventShortDto> eventShortDtos = EventMapper.toEventShortDto(events);
+        fillEventDtoList(eventShortDtos, events);
+
         log.info("Received {} events", eventShortDtos.size());
-        if (parameters.getSort() == null) {
-            return eventShortDtos;
+        if (sortType == null) {
+            return new EventPage<>(eventShortDtos, page.getNextCursor());
         } else {
-            return sortEvents(eventShortDtos, convertStringToSortType(parameters.getSort()));
+            return new EventPage<>(sortEvents(eventShortDtos, sortType), page.getNextCursor());
         }
     }
 
@@ -206,18 +222,21 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional
     public EventRequestStatusUpdateResult updateRequestStatus(long userId, long eventId,
                                                               EventRequestStatusUpdateRequest updateRequest) {
-        int eventParticipantLimit = getEventParticipantLimit(eventId, userId);
-        int confirmedRequests = getConfirmedRequests(eventId);
-        boolean needToRejectNotConfirmedRequests = needToRejectConfirmedRequests(confirmedRequests,
-                eventParticipantLimit, updateRequest, eventId);
+        Event event = getModeratedEventWithLock(eventId, userId);
+        boolean needToRejectNotConfirmedRequests = needToRejectConfirmedRequests(event.getConfirmedRequests(),
+                event.getParticipantLimit(), updateRequest, eventId);
 
         List<ParticipationRequest> requests = findRequestsToUpdate(eventId, updateRequest.getRequestIds());
         checkRequestModerationPossibilities(requests);
         updateRequests(requests, updateRequest.getStatus());
 
+        if (updateRequest.getStatus().equals(RequestStatus.CONFIRMED)) {
+            event.setConfirmedRequests(event.getConfirmedRequests() + requests.size());
+        }
+
         if (needToRejectNotConfirmedRequests) {
             updateRequests(requestStorage.findByEvent_IdAndStatus(eventId, RequestStatus.PENDING), RequestStatus.REJECTED);
         }
@@ -227,12 +246,11 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public List<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, long friendId, int from,
-                                               int size) {
+    public EventPage<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, long friendId,
+                                                    int from, int size, String cursor) {
         UserRelation relation = getUserRelations(userId, friendId);
         Validator.validateStartAndEndDates(parameters.getRangeStart(), parameters.getRangeEnd());
-        Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
+        EventCursor eventCursor = decodeCursor(cursor);
         BooleanBuilder builder = new BooleanBuilder();
         builder.and(QParticipationRequest.participationRequest.requester.id.in(friendId));
 
@@ -243,27 +261,27 @@ public class EventServiceImpl implements EventService {
         }
 
         composeRequestSearchPredicate(builder, parameters);
-        List<ParticipationRequest> requests = requestStorage.findAll(builder.getValue(), page).getContent();
-        List<Event> events = requests.stream().map(ParticipationRequest::getEvent).collect(Collectors.toList());
+        EventPage<ParticipationRequest> page = findPage(requestStorage::findSlice, builder,
+                Keyset.byId(QParticipationRequest.participationRequest.id, ParticipationRequest::getId), from, size,
+                eventCursor);
+        List<Event> events = page.getContent().stream().map(ParticipationRequest::getEvent).collect(Collectors.toList());
         List<EventShortDto> eventDtos = EventMapper.toEventShortDto(events);
-        fillEventDtoList(eventDtos, getEarliestPublishDate(events));
-
-        if (parameters.isOnlyAvailable()) {
-            filterNotAvailableEvents(events, eventDtos);
-        }
+        fillEventDtoList(eventDtos, events);
 
         log.info("Received {} events in which user with id = {} participates", eventDtos.size(), friendId);
         if (parameters.getSort() == null) {
-            return eventDtos;
+            return new EventPage<>(eventDtos, page.getNextCursor());
         } else {
-            return sortEvents(eventDtos, convertStringToSortType(parameters.getSort()));
+            return new EventPage<>(sortEvents(eventDtos, convertStringToSortType(parameters.getSort())),
+                    page.getNextCursor());
         }
     }
 
     @Override
-    public List<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, int from, int size,
-                                               boolean onlyFriends) {
+    public EventPage<EventShortDto> getFriendEvents(PublicSearchParameters parameters, long userId, int from, int size,
+                                                    String cursor, boolean onlyFriends) {
         Validator.validateStartAndEndDates(parameters.getRangeStart(), parameters.getRangeEnd());
+        EventCursor eventCursor = decodeCursor(cursor);
         List<Long> friendIds = friendshipService.getFriends(userId).stream().map(UserDto::getId)
                 .collect(Collectors.toList());
         List<Long> followingIds = (onlyFriends) ? Collections.emptyList() : friendshipService
@@ -277,8 +295,6 @@ public class EventServiceImpl implements EventService {
             throw new EntityNotFoundException(Constants.FRIENDS_OR_FOLLOWINGS_NOT_FOUND);
         }
 
-        Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
         BooleanBuilder builder = new BooleanBuilder();
 
         if (!friendIds.isEmpty() && !followingIds.isEmpty()) {
@@ -296,30 +312,156 @@ public class EventServiceImpl implements EventService {
         }
 
         composeRequestSearchPredicate(builder, parameters);
-        List<ParticipationRequest> requests = requestStorage.findAll(builder.getValue(), page).getContent();
-        Set<Event> events = requests.stream().map(ParticipationRequest::getEvent).collect(Collectors.toSet());
+        EventPage<ParticipationRequest> page = findPage(requestStorage::findSlice, builder,
+                Keyset.byId(QParticipationRequest.participationRequest.id, ParticipationRequest::getId), from, size,
+                eventCursor);
+        Set<Event> events = page.getContent().stream().map(ParticipationRequest::getEvent).collect(Collectors.toSet());
         List<EventShortDto> eventDtos = EventMapper.toEventShortDto(events);
-        fillEventDtoList(eventDtos, getEarliestPublishDate(events));
-
-        if (parameters.isOnlyAvailable()) {
-            filterNotAvailableEvents(events, eventDtos);
-        }
+        fillEventDtoList(eventDtos, events);
 
         log.info("Received {} events in which friends or followings of user with id = {} participate", eventDtos.size(),
                 userId);
         if (parameters.getSort() == null) {
-            return eventDtos;
+            return new EventPage<>(eventDtos, page.getNextCursor());
         } else {
-            return sortEvents(eventDtos, convertStringToSortType(parameters.getSort()));
+            return new EventPage<>(sortEvents(eventDtos, convertStringToSortType(parameters.getSort())),
+                    page.getNextCursor());
+        }
+    }
+
+    /**
+     * Resolves the matching event ids in the search index and loads only those events, so text matches the same words
+     * whatever the other parameters are. Listings by id are paged over the id list directly. Availability and views
+     * change too often to be indexed, so those listings check the matched ids in the database in chunks.
+     */
+    private EventPage<Event> findEventsInSearchIndex(PublicSearchParameters parameters, SortType sortType, int from,
+                                                     int size, EventCursor cursor) {
+        LocalDateTime after = null;
+        LocalDateTime before = null;
+
+        if (isBlank(parameters.getRangeStart()) && isBlank(parameters.getRangeEnd())) {
+            after = LocalDateTime.now();
+        }
+
+        if (!isBlank(parameters.getRangeStart())) {
+            after = decodeAndConvertToLocalDateTime(parameters.getRangeStart());
+        }
+
+        if (!isBlank(parameters.getRangeEnd())) {
+            before = decodeAndConvertToLocalDateTime(parameters.getRangeEnd());
         }
+
+        List<Long> eventIds = eventSearchIndex.search(parameters.getText(), parameters.getCategories(),
+                parameters.getPaid(), after, before);
+        log.info("Found {} events by text in search index", eventIds.size());
+
+        if (sortType == SortType.VIEWS || parameters.isOnlyAvailable()) {
+            BooleanBuilder builder = new BooleanBuilder(QEvent.event.state.eq(EventState.PUBLISHED));
+            if (parameters.isOnlyAvailable()) {
+                builder.and(isAvailable(QEvent.event));
+            }
+            Keyset<Event> keyset = sortType == SortType.VIEWS
+                    ? byViews() : Keyset.byId(QEvent.event.id, Event::getId);
+            return findPage(inChunksOf(eventIds, keyset), builder, keyset, from, size, cursor);
+        }
+
+        int start = from;
+        if (cursor != null) {
+            int position = Collections.binarySearch(eventIds, cursor.requireOrder(EventCursor.Order.ID).getAfterId());
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+
+        if (start >= eventIds.size()) {
+            return new EventPage<>(List.of(), null);
+        }
+
+        List<Long> pageIds = eventIds.subList(start, Math.min(start + size, eventIds.size()));
+        List<Event> events = eventStorage.findSlice(QEvent.event.id.in(pageIds)
+                .and(QEvent.event.state.eq(EventState.PUBLISHED)), 0, size, QEvent.event.id.asc());
+        String nextCursor = start + size < eventIds.size()
+                ? EventCursor.afterId(pageIds.get(pageIds.size() - 1)).encode() : null;
+        return new EventPage<>(events, nextCursor);
+    }
+
+    /**
+     * Loads events among the given ascending ids, one chunk of ids per query, and merges the chunks in the order of
+     * the keyset. In id order the chunks follow each other, so loading stops once the earlier chunks fill the slice.
+     */
+    private SliceLoader<Event> inChunksOf(List<Long> eventIds, Keyset<Event> keyset) {
+        return (predicate, offset, limit, order) -> {
+            int needed = (int) Math.min(offset + limit, Integer.MAX_VALUE);
+            List<Event> events = new ArrayList<>();
+            for (int start = 0; start < eventIds.size(); start += INDEX_ID_CHUNK_SIZE) {
+                if (keyset.order == EventCursor.Order.ID && events.size() >= needed) {
+                    break;
+                }
+                List<Long> chunk = eventIds.subList(start, Math.min(start + INDEX_ID_CHUNK_SIZE, eventIds.size()));
+                events.addAll(eventStorage.findSlice(QEvent.event.id.in(chunk).and(predicate), 0, needed, order));
+            }
+            events.sort(keyset.comparator);
+            return events.subList((int) Math.min(offset, events.size()), Math.min(needed, events.size()));
+        };
+    }
+
+    /**
+     * Loads one page in the order of the keyset. A cursor continues after the row it names instead of skipping rows,
+     * so {@code from} applies only to the first page, and a cursor of a listing in another order is rejected. No
+     * total count is queried.
+     */
+    private <T> EventPage<T> findPage(SliceLoader<T> loader, BooleanBuilder builder, Keyset<T> keyset, int from,
+                                      int size, EventCursor cursor) {
+        long offset = from;
+        if (cursor != null) {
+            builder.and(keyset.after.apply(cursor.requireOrder(keyset.order)));
+            offset = 0;
+        }
+
+        List<T> rows = loader.load(builder, offset, size + 1, keyset.orderBy);
+        if (rows.size() <= size) {
+            return new EventPage<>(rows, null);
+        }
+
+        List<T> content = new ArrayList<>(rows.subList(0, size));
+        return new EventPage<>(content, keyset.cursorAt.apply(content.get(size - 1)).encode());
+    }
+
+    /**
+     * Most viewed first, served by events_state_views_idx.
+     */
+    private Keyset<Event> byViews() {
+        QEvent event = QEvent.event;
+        return new Keyset<>(EventCursor.Order.VIEWS, new OrderSpecifier<?>[]{event.views.desc(), event.id.asc()},
+                Comparator.comparing(Event::getViews, Comparator.reverseOrder()).thenComparing(Event::getId),
+                cursor -> event.views.lt(cursor.getViews())
+                        .or(event.views.eq(cursor.getViews()).and(event.id.gt(cursor.getAfterId()))),
+                row -> EventCursor.afterViews(row.getViews(), row.getId()));
+    }
+
+    /**
+     * Most relevant first. The rank of the last row isn't part of the entity, so it is read once per page.
+     */
+    private Keyset<Event> byRelevance(String text) {
+        QEvent event = QEvent.event;
+        NumberExpression<Double> rank = eventTextSearch.rank(event, text);
+        return new Keyset<>(EventCursor.Order.RELEVANCE, new OrderSpecifier<?>[]{rank.desc(), event.id.asc()}, null,
+                cursor -> rank.lt(cursor.getRank())
+                        .or(rank.eq(cursor.getRank()).and(event.id.gt(cursor.getAfterId()))),
+                row -> EventCursor.afterRank(eventStorage.findValue(row.getId(), rank), row.getId()));
+    }
+
+    private EventCursor decodeCursor(String cursor) {
+        return isBlank(cursor) ? null : EventCursor.decode(cursor);
     }
 
     private void composeRequestSearchPredicate(BooleanBuilder builder, PublicSearchParameters parameters) {
         builder.and(QParticipationRequest.participationRequest.status.in(RequestStatus.CONFIRMED));
 
         if (!isBlank(parameters.getText())) {
-            builder.and(QParticipationRequest.participationRequest.event.annotation.containsIgnoreCase(parameters.getText())
-                    .or(QParticipationRequest.participationRequest.event.description.containsIgnoreCase(parameters.getText())));
+            builder.and(eventTextSearch.matches(QParticipationRequest.participationRequest.event, parameters.getText()));
+        }
+
+        if (parameters.isOnlyAvailable()) {
+            builder.and(isAvailable(QParticipationRequest.participationRequest.event));
         }
 
         if (!isEmpty(parameters.getCategories())) {
@@ -388,8 +530,15 @@ public class EventServiceImpl implements EventService {
         return needToRejectNotConfirmedRequests;
     }
 
-    private int getEventParticipantLimit(long eventId, long userId) {
-        Event event = getEventByEventIdAndUserId(eventId, userId);
+    private Event getModeratedEventWithLock(long eventId, long userId) {
+        Optional<Event> lockedEvent = eventStorage.findWithLockById(eventId);
+
+        if (lockedEvent.isEmpty() || lockedEvent.get().getInitiator().getId() != userId) {
+            log.warn("Attempt to get event with id = {} that user with id = {} doesn't have", eventId, userId);
+            throw new EntityNotFoundException(String.format(Constants.USER_EVENT_NOT_FOUND_MESSAGE, userId, eventId));
+        }
+
+        Event event = lockedEvent.get();
 
         if (!event.isRequestModeration() || event.getParticipantLimit() == 0) {
             log.warn("Attempt to moderate event participation requests in event that doesn't request moderation id = {}",
@@ -403,7 +552,7 @@ public class EventServiceImpl implements EventService {
             throw new DataModificationProhibitedException(Constants.CANNOT_MODERATE_REQUEST_IN_ALREADY_STARTED_EVENT_MESSAGE);
         }
 
-        return event.getParticipantLimit();
+        return event;
     }
 
     private List<ParticipationRequest> findRequestsToUpdate(long eventId, Set<Long> requestIds) {
@@ -449,21 +598,15 @@ public class EventServiceImpl implements EventService {
                 ParticipationRequestMapper.toRequestDto(rejected));
     }
 
-    private void filterNotAvailableEvents(Collection<Event> events, List<EventShortDto> eventShortDtos) {
-        Map<Long, Event> eventMap = events.stream().collect(Collectors.toMap(Event::getId, Function.identity()));
-        List<EventShortDto> eventsToRemove = eventShortDtos.stream().filter(eventShortDto ->
-                        eventShortDto.getConfirmedRequests() >= eventMap.get(eventShortDto.getId()).getParticipantLimit())
-                .collect(Collectors.toList());
-
-        log.info("Removed {} not available events", eventsToRemove.size());
-        eventShortDtos.removeAll(eventsToRemove);
+    private BooleanExpression isAvailable(QEvent event) {
+        return event.participantLimit.eq(0).or(event.confirmedRequests.lt(event.participantLimit));
     }
 
     private void saveStatistics(HttpServletRequest request) {
         InputEndpointHit inputEndpointHit = new InputEndpointHit(Constants.APP_NAME, request.getRequestURI(),
                 request.getRemoteAddr(), LocalDateTime.now().format(Constants.FORMATTER));
-        statsClient.saveEndpointRequest(inputEndpointHit);
-        log.info("Statistics saved");
+        statsHitSender.send(inputEndpointHit);
+        log.info("Statistics sent");
     }
 
     private void composeSearchPredicate(BooleanBuilder builder, AdminSearchParameters parameters) {
@@ -492,8 +635,11 @@ public class EventServiceImpl implements EventService {
         builder.and(QEvent.event.state.eq(EventState.PUBLISHED));
 
         if (!isBlank(parameters.getText())) {
-            builder.and(QEvent.event.annotation.containsIgnoreCase(parameters.getText())
-                    .or(QEvent.event.description.containsIgnoreCase(parameters.getText())));
+            builder.and(eventTextSearch.matches(QEvent.event, parameters.getText()));
+        }
+
+        if (parameters.isOnlyAvailable()) {
+            builder.and(isAvailable(QEvent.event));
         }
 
         if (!isEmpty(parameters.getCategories())) {
@@ -519,49 +665,12 @@ public class EventServiceImpl implements EventService {
 
     private EventFullDto composeEventFullDto(Event event) {
         EventFullDto eventDto = EventMapper.toEventFullDto(event);
-
-        if (event.getState().equals(EventState.PUBLISHED)) {
-            eventDto.setConfirmedRequests(getConfirmedRequests(event.getId()));
-            eventDto.setViews(getViews(event.getId(), event.getPublishedOn()));
-        }
-
+        eventEnricher.fillViews(List.of(eventDto), List.of(event));
         return eventDto;
     }
 
-    private void fillEventDtoList(List<? extends EventDto> eventDtoList, Optional<LocalDateTime> earliestPublishDate) {
-        if (earliestPublishDate.isEmpty()) {
-            return;
-        }
-
-        Map<Long, EventDto> eventDtos = eventDtoList.stream()
-                .collect(Collectors.toMap(EventDto::getId, Function.identity()));
-        List<ParticipationRequest> requests = requestStorage.findByEvent_IdInAndStatus(eventDtos.keySet(),
-                RequestStatus.CONFIRMED);
-
-        for (ParticipationRequest request : requests) {
-            EventDto eventDto = eventDtos.get(request.getEvent().getId());
-            eventDto.setConfirmedRequests(eventDto.getConfirmedRequests() + 1);
-        }
-
-        Map<String, Long> uris = new HashMap<>();
-        eventDtos.keySet().forEach(id -> uris.put(String.format(Constants.EVENT_ENDPOINT, id), id));
-
-        List<EndpointStats> stats = statsClient.getStatistics(earliestPublishDate.get(), LocalDateTime.now(),
-                new ArrayList<>(uris.keySet()), true);
-
-        for (EndpointStats statistics : stats) {
-            if (statistics.getApp().equals(Constants.APP_NAME) && uris.containsKey(statistics.getUri())) {
-                long eventId = uris.get(statistics.getUri());
-                eventDtos.get(eventId).setViews(statistics.getHits());
-            }
-        }
-    }
-
-    private Optional<LocalDateTime> getEarliestPublishDate(Collection<Event> events) {
-        return events.stream()
-                .filter(event -> event.getState().equals(EventState.PUBLISHED))
-                .map(Event::getPublishedOn)
-                .min(Comparator.naturalOrder());
+    private void fillEventDtoList(List<? extends EventDto> eventDtoList, Collection<Event> events) {
+        eventEnricher.fillViews(eventDtoList, events);
     }
 
     private void setEventState(Event event, EventState newState) {
@@ -646,12 +755,6 @@ public class EventServiceImpl implements EventService {
         return date;
     }
 
-    private int getConfirmedRequests(long eventId) {
-        int confirmedRequests = requestStorage.countByEvent_IdAndStatus(eventId, RequestStatus.CONFIRMED);
-        log.info("Found {} confirmed requests to event with id = {}", confirmedRequests, eventId);
-        return confirmedRequests;
-    }
-
     private <T extends EventDto> List<T> sortEvents(List<T> unsortedList, SortType sortType) {
         switch (sortType) {
             case VIEWS:
@@ -662,28 +765,14 @@ public class EventServiceImpl implements EventService {
                 return unsortedList.stream()
                         .sorted(Comparator.comparing(EventDto::getEventDate))
                         .collect(Collectors.toList());
+            case RELEVANCE:
+                return unsortedList;
             default:
                 log.warn("Attempt to sort events by nonexistent sort type: {}", sortType);
                 throw new IllegalArgumentException(String.format(Constants.SORT_TYPE_DOES_NOT_EXIST_MESSAGE, sortType));
         }
     }
 
-    private int getViews(long eventId, LocalDateTime publishedOn) {
-        List<String> uris = List.of(String.format(Constants.EVENT_ENDPOINT, eventId));
-        List<EndpointStats> stats = statsClient.getStatistics(publishedOn, LocalDateTime.now(), uris, true);
-        int views = 0;
-
-        for (EndpointStats statistics : stats) {
-            if (statistics.getApp().equals(Constants.APP_NAME) && statistics.getUri().equals(uris.get(0))) {
-                views = statistics.getHits();
-                break;
-            }
-        }
-
-        log.info("Found {} views of event with id = {}", views, eventId);
-        return views;
-    }
-
     private Event getEventByEventIdAndUserId(long eventId, long userId) {
         Optional<Event> event = eventStorage.findByIdAndInitiator_Id(eventId, userId);
 
@@ -732,4 +821,27 @@ public class EventServiceImpl implements EventService {
 
         return user.get();
     }
+
+    @FunctionalInterface
+    private interface SliceLoader<T> {
+        List<T> load(Predicate predicate, long offset, int limit, OrderSpecifier<?>... order);
+    }
+
+    /**
+     * Order of a listing, also as a comparator where the sort key is part of the row, with the condition selecting
+     * rows after a cursor and the cursor at a row.
+     */
+    @RequiredArgsConstructor
+    private static class Keyset<T> {
+        private final EventCursor.Order order;
+        private final OrderSpecifier<?>[] orderBy;
+        private final Comparator<T> comparator;
+        private final Function<EventCursor, Predicate> after;
+        private final Function<T, EventCursor> cursorAt;
+
+        static <T> Keyset<T> byId(NumberPath<Long> id, Function<T, Long> idGetter) {
+            return new Keyset<>(EventCursor.Order.ID, new OrderSpecifier<?>[]{id.asc()}, Comparator.comparing(idGetter),
+                    cursor -> id.gt(cursor.getAfterId()), row -> EventCursor.afterId(idGetter.apply(row)));
+        }
+    }
 }
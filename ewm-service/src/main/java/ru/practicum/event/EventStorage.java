@@ -3,16 +3,25 @@ package ru.practicum.event;
 import com.querydsl.core.types.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.event.model.ConfirmedRequestsDrift;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventPublication;
 import ru.practicum.event.model.EventState;
+import ru.practicum.request.model.RequestStatus;
 
+import javax.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 
-public interface EventStorage extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event> {
+public interface EventStorage extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event>, EventStorageCustom {
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"category", "initiator", "location"})
     Optional<Event> findByIdAndInitiator_Id(Long eventId, Long userId);
 
@@ -22,8 +31,29 @@ public interface EventStorage extends JpaRepository<Event, Long>, QuerydslPredic
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"category", "initiator", "location"})
     Optional<Event> findByIdAndState(Long id, EventState state);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Event> findWithLockById(Long eventId);
+
     boolean existsByIdAndInitiator_Id(Long eventId, Long userId);
 
+    @Query("select new ru.practicum.event.model.EventPublication(e.id, e.publishedOn) " +
+            "from Event e " +
+            "where e.state = :state and e.id > :afterId " +
+            "order by e.id")
+    List<EventPublication> findPublications(@Param("state") EventState state, @Param("afterId") long afterId,
+                                            Pageable pageable);
+
+    @Modifying
+    @Query("update Event e set e.views = :views where e.id = :eventId and e.views <> :views")
+    int updateViews(@Param("eventId") long eventId, @Param("views") long views);
+
+    @Query("select new ru.practicum.event.model.ConfirmedRequestsDrift(e.id, e.confirmedRequests, " +
+            "(select count(r) from ParticipationRequest r where r.event = e and r.status = :status)) " +
+            "from Event e " +
+            "where e.confirmedRequests <> " +
+            "(select count(r) from ParticipationRequest r where r.event = e and r.status = :status)")
+    List<ConfirmedRequestsDrift> findConfirmedRequestsDrift(@Param("status") RequestStatus status);
+
     @Override
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"initiator", "location"})
     Optional<Event> findById(Long eventId);
@@ -36,6 +66,10 @@ public interface EventStorage extends JpaRepository<Event, Long>, QuerydslPredic
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"category", "initiator", "location"})
     Page<Event> findAll(Pageable pageable);
 
+    @Override
+    @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"category", "initiator"})
+    Iterable<Event> findAll(Predicate predicate, Sort sort);
+
     @Override
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"category", "initiator"})
     List<Event> findAllById(Iterable<Long> longs);
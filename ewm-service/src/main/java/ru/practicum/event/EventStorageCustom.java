@@ -0,0 +1,20 @@
+package ru.practicum.event;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import ru.practicum.event.model.Event;
+
+import java.util.List;
+
+public interface EventStorageCustom {
+    /**
+     * Loads events with their category, initiator and location without counting all matching rows.
+     */
+    List<Event> findSlice(Predicate predicate, long offset, int limit, OrderSpecifier<?>... order);
+
+    /**
+     * Evaluates an expression over one event, such as its relevance to a text query.
+     */
+    <V> V findValue(long eventId, Expression<V> expression);
+}
@@ -0,0 +1,45 @@
+package ru.practicum.event;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.QEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class EventStorageCustomImpl implements EventStorageCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Event> findSlice(Predicate predicate, long offset, int limit, OrderSpecifier<?>... order) {
+        QEvent event = QEvent.event;
+
+        return new JPAQuery<Event>(entityManager)
+                .select(event)
+                .from(event)
+                .leftJoin(event.category).fetchJoin()
+                .leftJoin(event.initiator).fetchJoin()
+                .leftJoin(event.location).fetchJoin()
+                .where(predicate)
+                .orderBy(order)
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+
+    @Override
+    public <V> V findValue(long eventId, Expression<V> expression) {
+        QEvent event = QEvent.event;
+
+        return new JPAQuery<V>(entityManager)
+                .select(expression)
+                .from(event)
+                .where(event.id.eq(eventId))
+                .fetchOne();
+    }
+}
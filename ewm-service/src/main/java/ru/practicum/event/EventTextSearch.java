@@ -0,0 +1,61 @@
+package ru.practicum.event;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.event.model.QEvent;
+import ru.practicum.event.search.EventSearchIndex;
+
+import java.util.Set;
+
+/**
+ * Builds text search conditions over title, annotation and description. Uses the PostgreSQL full-text index when
+ * enabled and falls back to LIKE otherwise (H2 has no tsvector support). Both split the text into the same words and
+ * require all of them, but the fallback also finds a word inside a longer one, e.g. "art" in "party", where full-text
+ * search matches whole words only.
+ */
+@Component
+public class EventTextSearch {
+    private final boolean fullText;
+
+    public EventTextSearch(@Value("${ewm.search.full-text.enabled}") boolean fullText) {
+        this.fullText = fullText;
+    }
+
+    public BooleanExpression matches(QEvent event, String text) {
+        if (!fullText) {
+            Set<String> words = EventSearchIndex.tokenize(text);
+            if (words.isEmpty()) {
+                // like plainto_tsquery of no words
+                return Expressions.FALSE.isTrue();
+            }
+
+            return Expressions.allOf(words.stream()
+                    .map(word -> event.title.containsIgnoreCase(word)
+                            .or(event.annotation.containsIgnoreCase(word))
+                            .or(event.description.containsIgnoreCase(word)))
+                    .toArray(BooleanExpression[]::new));
+        }
+
+        return Expressions.booleanTemplate("function('fts_match', {0}, {1}, {2}, {3}) = true",
+                event.title, event.annotation, event.description, text);
+    }
+
+    public boolean isFullText() {
+        return fullText;
+    }
+
+    /**
+     * Relevance of an event to the text, higher first. Only available with full-text search.
+     */
+    public NumberExpression<Double> rank(QEvent event, String text) {
+        if (!fullText) {
+            throw new IllegalStateException("Relevance is only ranked by full-text search");
+        }
+
+        return Expressions.numberTemplate(Double.class, "function('fts_rank', {0}, {1}, {2}, {3})",
+                event.title, event.annotation, event.description, text);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointStats;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsLookupBatcher;
+import ru.practicum.UriMatch;
+import ru.practicum.utils.Constants;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Component
+@Slf4j
+public class EventViewsCache {
+    private final StatsLookupBatcher statsLookupBatcher;
+    private final StatsClient statsClient;
+    private final Cache<Long, Integer> views;
+
+    public EventViewsCache(StatsLookupBatcher statsLookupBatcher, StatsClient statsClient, MeterRegistry meterRegistry,
+                           @Value("${ewm.views-cache.ttl-seconds}") long ttlSeconds,
+                           @Value("${ewm.views-cache.max-size}") long maxSize) {
+        this.statsLookupBatcher = statsLookupBatcher;
+        this.statsClient = statsClient;
+        this.views = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, views, "eventViews");
+    }
+
+    public int getViews(long eventId, LocalDateTime publishedOn) {
+        return getViews(Map.of(eventId, publishedOn)).get(eventId);
+    }
+
+    /**
+     * Returns views of the given published events, loading all not cached ones with a single stats request.
+     */
+    public Map<Long, Integer> getViews(Map<Long, LocalDateTime> publishedOnByEventId) {
+        if (publishedOnByEventId.isEmpty()) {
+            return Map.of();
+        }
+
+        return views.getAll(publishedOnByEventId.keySet(),
+                eventIds -> loadViews(eventIds, publishedOnByEventId, false));
+    }
+
+    /**
+     * Loads views of the given published events from the stats service, bypassing the cache. Unique ips are counted
+     * approximately from hourly sketches, which costs the stats service the same for old events as for new ones.
+     */
+    public Map<Long, Integer> loadApproximateViews(Map<Long, LocalDateTime> publishedOnByEventId) {
+        if (publishedOnByEventId.isEmpty()) {
+            return Map.of();
+        }
+
+        return loadViews(publishedOnByEventId.keySet(), publishedOnByEventId, true);
+    }
+
+    private Map<Long, Integer> loadViews(Iterable<? extends Long> eventIds,
+                                         Map<Long, LocalDateTime> publishedOnByEventId, boolean approximate) {
+        LocalDateTime earliestPublishDate = null;
+        Map<String, Long> uris = new HashMap<>();
+        Map<Long, Integer> loadedViews = new HashMap<>();
+
+        for (Long eventId : eventIds) {
+            LocalDateTime publishedOn = publishedOnByEventId.get(eventId);
+            if (earliestPublishDate == null || publishedOn.isBefore(earliestPublishDate)) {
+                earliestPublishDate = publishedOn;
+            }
+            uris.put(String.format(Constants.EVENT_ENDPOINT, eventId), eventId);
+            loadedViews.put(eventId, 0);
+        }
+
+        List<EndpointStats> stats = approximate
+                ? statsClient.getStatistics(earliestPublishDate, LocalDateTime.now(), new ArrayList<>(uris.keySet()),
+                        true, true, UriMatch.EXACT)
+                : statsLookupBatcher.getStatistics(earliestPublishDate, LocalDateTime.now(),
+                        new ArrayList<>(uris.keySet()), true);
+
+        for (EndpointStats statistics : stats) {
+            if (statistics.getApp().equals(Constants.APP_NAME) && uris.containsKey(statistics.getUri())) {
+                loadedViews.put(uris.get(statistics.getUri()), statistics.getHits());
+            }
+        }
+
+        log.info("Loaded views of {} events", loadedViews.size());
+        return loadedViews;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.model.EventPublication;
+import ru.practicum.event.model.EventState;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Copies views of published events from the stats service into events.views, so that listings sorted by views can
+ * be ordered and paged by the database. Views are only used for ordering, so approximate unique counts are enough
+ * and spare the stats service recounting the whole history of every event on each run.
+ */
+@Component
+@Slf4j
+public class EventViewsRefresher {
+    private final EventStorage eventStorage;
+    private final EventViewsCache eventViewsCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public EventViewsRefresher(EventStorage eventStorage, EventViewsCache eventViewsCache,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${ewm.views-index.batch-size}") int batchSize) {
+        this.eventStorage = eventStorage;
+        this.eventViewsCache = eventViewsCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${ewm.views-index.refresh-interval-ms}",
+            fixedDelayString = "${ewm.views-index.refresh-interval-ms}")
+    public void refresh() {
+        long lastEventId = 0;
+        int refreshed = 0;
+        int changed = 0;
+
+        try {
+            List<EventPublication> publications;
+            do {
+                publications = eventStorage.findPublications(EventState.PUBLISHED, lastEventId,
+                        PageRequest.of(0, batchSize));
+                if (publications.isEmpty()) {
+                    break;
+                }
+
+                Map<Long, Integer> views = eventViewsCache.loadApproximateViews(publications.stream()
+                        .collect(Collectors.toMap(EventPublication::getEventId, EventPublication::getPublishedOn)));
+                Integer updated = transactionTemplate.execute(status -> views.entrySet().stream()
+                        .mapToInt(entry -> eventStorage.updateViews(entry.getKey(), entry.getValue()))
+                        .sum());
+
+                changed += updated == null ? 0 : updated;
+                refreshed += publications.size();
+                lastEventId = publications.get(publications.size() - 1).getEventId();
+            } while (publications.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh views of published events after event with id = {}: {}", lastEventId,
+                    e.getMessage());
+            return;
+        }
+
+        log.info("Refreshed views of {} published events, {} changed", refreshed, changed);
+    }
+}
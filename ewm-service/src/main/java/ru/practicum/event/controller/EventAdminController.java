@@ -2,6 +2,7 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.EventService;
@@ -31,15 +32,16 @@ public class EventAdminController {
     }
 
     @GetMapping
-    public List<EventFullDto> getEvents(@RequestParam(required = false) Long[] users,
+    public ResponseEntity<List<EventFullDto>> getEvents(@RequestParam(required = false) Long[] users,
                                         @RequestParam(required = false) String[] states,
                                         @RequestParam(required = false) Long[] categories,
                                         @RequestParam(required = false) String rangeStart,
                                         @RequestParam(required = false) String rangeEnd,
                                         @RequestParam(defaultValue = Constants.DEFAULT_START_VALUE) @Min(0) int from,
-                                        @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size) {
+                                        @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size,
+                                        @RequestParam(required = false) String cursor) {
         log.info("Getting {} events from {} event by admin", size, from);
         AdminSearchParameters parameters = new AdminSearchParameters(users, states, categories, rangeStart, rangeEnd);
-        return eventService.getEvents(parameters, from, size);
+        return eventService.getEvents(parameters, from, size, cursor).toResponseEntity();
     }
 }
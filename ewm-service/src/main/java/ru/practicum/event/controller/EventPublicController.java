@@ -2,6 +2,7 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.EventService;
@@ -31,7 +32,7 @@ public class EventPublicController {
     }
 
     @GetMapping
-    public List<EventShortDto> getEvents(HttpServletRequest request,
+    public ResponseEntity<List<EventShortDto>> getEvents(HttpServletRequest request,
                                          @RequestParam(required = false) String text,
                                          @RequestParam(required = false) Long[] categories,
                                          @RequestParam(required = false) Boolean paid,
@@ -40,10 +41,11 @@ public class EventPublicController {
                                          @RequestParam(required = false) String sort,
                                          @RequestParam(defaultValue = DEFAULT_AVAILABLE_VALUE) boolean onlyAvailable,
                                          @RequestParam(defaultValue = Constants.DEFAULT_START_VALUE) @Min(0) int from,
-                                         @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size) {
+                                         @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size,
+                                         @RequestParam(required = false) String cursor) {
         log.info("Getting {} events from {} event", size, from);
         PublicSearchParameters parameters = new PublicSearchParameters(text, categories, paid, rangeStart, rangeEnd,
                 onlyAvailable, sort);
-        return eventService.getEvents(request, parameters, from, size);
+        return eventService.getEvents(request, parameters, from, size, cursor).toResponseEntity();
     }
 }
@@ -2,6 +2,7 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.EventService;
@@ -23,7 +24,7 @@ public class FriendEventsPrivateController {
     private static final String DEFAULT_BOOLEAN_VALUE = "false";
 
     @GetMapping("/{friendId}/events")
-    public List<EventShortDto> getFriendEvents(@PathVariable @Positive long userId,
+    public ResponseEntity<List<EventShortDto>> getFriendEvents(@PathVariable @Positive long userId,
                                                @PathVariable @Positive long friendId,
                                                @RequestParam(required = false) String text,
                                                @RequestParam(required = false) Long[] categories,
@@ -33,15 +34,16 @@ public class FriendEventsPrivateController {
                                                @RequestParam(required = false) String sort,
                                                @RequestParam(defaultValue = DEFAULT_BOOLEAN_VALUE) boolean onlyAvailable,
                                                @RequestParam(defaultValue = Constants.DEFAULT_START_VALUE) @Min(0) int from,
-                                               @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size) {
+                                               @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size,
+                                               @RequestParam(required = false) String cursor) {
         log.info("Getting events in which the user with id = {} participates by user with id = {}", friendId, userId);
         PublicSearchParameters parameters = new PublicSearchParameters(text, categories, paid, rangeStart, rangeEnd,
                 onlyAvailable, sort);
-        return eventService.getFriendEvents(parameters, userId, friendId, from, size);
+        return eventService.getFriendEvents(parameters, userId, friendId, from, size, cursor).toResponseEntity();
     }
 
     @GetMapping("/events")
-    public List<EventShortDto> getFriendEvents(@PathVariable @Positive long userId,
+    public ResponseEntity<List<EventShortDto>> getFriendEvents(@PathVariable @Positive long userId,
                                                @RequestParam(required = false) String text,
                                                @RequestParam(required = false) Long[] categories,
                                                @RequestParam(required = false) Boolean paid,
@@ -51,7 +53,8 @@ public class FriendEventsPrivateController {
                                                @RequestParam(defaultValue = DEFAULT_BOOLEAN_VALUE) boolean onlyFriends,
                                                @RequestParam(defaultValue = DEFAULT_BOOLEAN_VALUE) boolean onlyAvailable,
                                                @RequestParam(defaultValue = Constants.DEFAULT_START_VALUE) @Min(0) int from,
-                                               @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size) {
+                                               @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) @Positive int size,
+                                               @RequestParam(required = false) String cursor) {
         if (onlyFriends) {
             log.info("Getting events in which friends of user with id = {} participate", userId);
         } else {
@@ -59,6 +62,6 @@ public class FriendEventsPrivateController {
         }
         PublicSearchParameters parameters = new PublicSearchParameters(text, categories, paid, rangeStart, rangeEnd,
                 onlyAvailable, sort);
-        return eventService.getFriendEvents(parameters, userId, from, size, onlyFriends);
+        return eventService.getFriendEvents(parameters, userId, from, size, cursor, onlyFriends).toResponseEntity();
     }
 }
@@ -0,0 +1,109 @@
+package ru.practicum.event.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.utils.Constants;
+
+import javax.validation.ValidationException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Opaque position in an event listing, tied to the order of the listing it came from. It holds the sort key and id
+ * of the last returned row, so the next page continues after them instead of skipping rows: by id alone, or by
+ * views or relevance descending with the id breaking ties.
+ */
+@Slf4j
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EventCursor {
+    private static final String SEPARATOR = ":";
+
+    private final Order order;
+    private final long afterId;
+    private final Number key;
+
+    public static EventCursor afterId(long id) {
+        return new EventCursor(Order.ID, id, null);
+    }
+
+    public static EventCursor afterViews(long views, long id) {
+        return new EventCursor(Order.VIEWS, id, views);
+    }
+
+    public static EventCursor afterRank(double rank, long id) {
+        return new EventCursor(Order.RELEVANCE, id, rank);
+    }
+
+    public static EventCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(SEPARATOR);
+            Order order = Order.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            long id = Long.parseLong(parts[parts.length - 1]);
+
+            if (parts.length == (order == Order.ID ? 2 : 3) && id >= 0) {
+                switch (order) {
+                    case ID:
+                        return afterId(id);
+                    case VIEWS:
+                        long views = Long.parseLong(parts[1]);
+                        if (views >= 0) {
+                            return afterViews(views, id);
+                        }
+                        break;
+                    default:
+                        double rank = Double.parseDouble(parts[1]);
+                        if (Double.isFinite(rank)) {
+                            return afterRank(rank, id);
+                        }
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            log.warn("Attempt to use malformed cursor: {}", cursor);
+            throw new ValidationException(String.format(Constants.INCORRECT_CURSOR_MESSAGE, cursor), e);
+        }
+
+        log.warn("Attempt to use malformed cursor: {}", cursor);
+        throw new ValidationException(String.format(Constants.INCORRECT_CURSOR_MESSAGE, cursor));
+    }
+
+    /**
+     * Returns this cursor if it came from a listing in the given order.
+     */
+    public EventCursor requireOrder(Order expected) {
+        if (order != expected) {
+            log.warn("Attempt to use a cursor of a listing by {} in a listing by {}", order, expected);
+            throw new ValidationException(String.format(Constants.CURSOR_ORDER_MISMATCH_MESSAGE,
+                    order.name().toLowerCase(Locale.ROOT), expected.name().toLowerCase(Locale.ROOT)));
+        }
+
+        return this;
+    }
+
+    public long getViews() {
+        return key.longValue();
+    }
+
+    public double getRank() {
+        return key.doubleValue();
+    }
+
+    public String encode() {
+        String value = order.name().toLowerCase(Locale.ROOT) + SEPARATOR + (key != null ? key + SEPARATOR : "")
+                + afterId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Order of the rows in the database query a listing page comes from.
+     */
+    public enum Order {
+        ID,
+        VIEWS,
+        RELEVANCE
+    }
+}
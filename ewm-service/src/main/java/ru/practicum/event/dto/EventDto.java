@@ -1,5 +1,6 @@
 package ru.practicum.event.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -21,6 +22,8 @@ public abstract class EventDto {
     private boolean paid;
     private String title;
     private int views;
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean viewsUnavailable;
 
     protected EventDto(long id, String annotation, CategoryDto category, String eventDate, UserShortDto initiator,
                        boolean paid, String title) {
@@ -0,0 +1,30 @@
+package ru.practicum.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.utils.Constants;
+
+import java.util.List;
+
+/**
+ * Page of an event listing with the cursor of the next page, {@code null} if this page is the last one.
+ */
+@Getter
+@AllArgsConstructor
+public class EventPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+
+    /**
+     * Returns the content as the response body and the next page cursor in the {@value Constants#NEXT_CURSOR_HEADER}
+     * header.
+     */
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(Constants.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(content);
+    }
+}
@@ -2,5 +2,6 @@ package ru.practicum.event.dto;
 
 public enum SortType {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE
 }
@@ -0,0 +1,14 @@
+package ru.practicum.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ConfirmedRequestsDrift {
+    private Long eventId;
+    private Integer recorded;
+    private Long actual;
+}
@@ -58,6 +58,16 @@ public class Event {
     @Column(name = "request_moderation")
     private boolean requestModeration;
 
+    @Column(name = "confirmed_requests")
+    private int confirmedRequests;
+
+    /**
+     * Unique views as of the last {@link ru.practicum.event.EventViewsRefresher} run, used only to order listings.
+     * Only the refresher's update query writes it; saving an event keeps the stored value.
+     */
+    @Column(updatable = false, insertable = false)
+    private long views;
+
     @Enumerated(EnumType.STRING)
     private EventState state;
 
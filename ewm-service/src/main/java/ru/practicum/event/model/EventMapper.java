@@ -38,7 +38,7 @@ public class EventMapper {
     }
 
     public static EventFullDto toEventFullDto(Event event) {
-        return new EventFullDto(
+        EventFullDto eventDto = new EventFullDto(
                 event.getId(),
                 event.getAnnotation(),
                 CategoryMapper.toCategoryDto(event.getCategory()),
@@ -54,10 +54,12 @@ public class EventMapper {
                 event.isRequestModeration(),
                 event.getState()
         );
+        eventDto.setConfirmedRequests(event.getConfirmedRequests());
+        return eventDto;
     }
 
     public static EventShortDto toEventShortDto(Event event) {
-        return new EventShortDto(
+        EventShortDto eventDto = new EventShortDto(
                 event.getId(),
                 event.getAnnotation(),
                 CategoryMapper.toCategoryDto(event.getCategory()),
@@ -66,6 +68,8 @@ public class EventMapper {
                 event.isPaid(),
                 event.getTitle()
         );
+        eventDto.setConfirmedRequests(event.getConfirmedRequests());
+        return eventDto;
     }
 
     public static List<EventShortDto> toEventShortDto(Collection<Event> events) {
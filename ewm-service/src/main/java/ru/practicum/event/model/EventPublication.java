@@ -0,0 +1,13 @@
+package ru.practicum.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class EventPublication {
+    private Long eventId;
+    private LocalDateTime publishedOn;
+}
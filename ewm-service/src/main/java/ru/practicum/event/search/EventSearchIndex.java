@@ -0,0 +1,308 @@
+package ru.practicum.event.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.event.EventStorage;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventState;
+import ru.practicum.event.model.QEvent;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index of published events over title, annotation and description. Lets the public search
+ * resolve text, category, paid and date filters to a page of event ids before querying the database.
+ */
+@Component
+@Slf4j
+public class EventSearchIndex {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int TERM_OVERHEAD_BYTES = 96;
+    private static final int DOCUMENT_OVERHEAD_BYTES = 120;
+
+    private final EventStorage eventStorage;
+    private final boolean enabled;
+    private final int rebuildBatchSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, IndexedEvent> documents = new HashMap<>();
+    private volatile boolean ready;
+
+    public EventSearchIndex(EventStorage eventStorage, MeterRegistry meterRegistry,
+                            @Value("${ewm.search.index.enabled}") boolean enabled,
+                            @Value("${ewm.search.index.rebuild-batch-size}") int rebuildBatchSize) {
+        this.eventStorage = eventStorage;
+        this.enabled = enabled;
+        this.rebuildBatchSize = rebuildBatchSize;
+        Gauge.builder("ewm.search.index.memory", this, EventSearchIndex::estimateMemory)
+                .description("Estimated heap used by the event search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("ewm.search.index.documents", this, index -> index.read(index.documents::size))
+                .description("Published events in the event search index")
+                .register(meterRegistry);
+        Gauge.builder("ewm.search.index.terms", this, index -> index.read(index.postings::size))
+                .description("Distinct terms in the event search index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns {@code true} once the index has been built and can answer searches.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            // events come in ascending id order, so ids of a term are collected already sorted and each posting
+            // list is encoded once instead of being copied on every appended id
+            Map<String, IdBuffer> termIds = new HashMap<>();
+            Pageable page = PageRequest.of(0, rebuildBatchSize, Sort.by(Sort.Direction.ASC, "id"));
+            Page<Event> events;
+            do {
+                events = eventStorage.findAll(QEvent.event.state.eq(EventState.PUBLISHED), page);
+                for (Event event : events) {
+                    IndexedEvent document = IndexedEvent.of(event);
+                    documents.put(document.id, document);
+                    for (String term : document.terms) {
+                        termIds.computeIfAbsent(term, ignored -> new IdBuffer()).add(document.id);
+                    }
+                }
+                page = page.next();
+            } while (events.hasNext());
+            termIds.forEach((term, ids) -> postings.put(term, PostingList.of(ids.toArray())));
+
+            ready = true;
+            log.info("Built event search index of {} events and {} terms", documents.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the event if it is published and removes it from the index otherwise. Inside a transaction the change
+     * is applied after commit.
+     */
+    public void update(Event event) {
+        if (!enabled) {
+            return;
+        }
+
+        long eventId = event.getId();
+        IndexedEvent document = event.getState() == EventState.PUBLISHED ? IndexedEvent.of(event) : null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(eventId, document);
+                }
+            });
+        } else {
+            apply(eventId, document);
+        }
+    }
+
+    /**
+     * Returns ids of published events, in ascending order, containing every word of the text and matching the rest
+     * of the filters. Null filters are ignored.
+     */
+    public List<Long> search(String text, Long[] categories, Boolean paid, LocalDateTime after, LocalDateTime before) {
+        Set<String> terms = tokenize(text);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> categoryIds = categories == null || categories.length == 0 ? null : Set.of(categories);
+        List<Long> eventIds = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long eventId : intersect(terms)) {
+                IndexedEvent document = documents.get(eventId);
+                if ((categoryIds == null || categoryIds.contains(document.categoryId))
+                        && (paid == null || paid == document.paid)
+                        && (after == null || document.eventDate.isAfter(after))
+                        && (before == null || document.eventDate.isBefore(before))) {
+                    eventIds.add(eventId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return eventIds;
+    }
+
+    private long[] intersect(Set<String> terms) {
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        long[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i).toArray());
+        }
+        return result;
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void apply(long eventId, IndexedEvent document) {
+        lock.writeLock().lock();
+        try {
+            remove(eventId);
+            if (document != null) {
+                add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(IndexedEvent document) {
+        documents.put(document.id, document);
+        for (String term : document.terms) {
+            postings.compute(term, (ignored, list) -> (list == null ? PostingList.EMPTY : list).with(document.id));
+        }
+    }
+
+    private void remove(long eventId) {
+        IndexedEvent document = documents.remove(eventId);
+        if (document == null) {
+            return;
+        }
+
+        for (String term : document.terms) {
+            PostingList list = postings.get(term).without(eventId);
+            if (list.size() == 0) {
+                postings.remove(term);
+            } else {
+                postings.put(term, list);
+            }
+        }
+    }
+
+    private double estimateMemory() {
+        return read(() -> {
+            long bytes = (long) documents.size() * DOCUMENT_OVERHEAD_BYTES;
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                bytes += TERM_OVERHEAD_BYTES + 2L * entry.getKey().length() + entry.getValue().sizeInBytes();
+            }
+            for (IndexedEvent document : documents.values()) {
+                bytes += 8L * document.terms.length;
+            }
+            return bytes;
+        });
+    }
+
+    private <T extends Number> double read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get().doubleValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased words of the text: runs of letters and digits, as the simple text search configuration splits them.
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Growable array of ascending ids; an id not greater than the last one, e.g. an event seen on two pages while
+     * events were published during the rebuild, is skipped.
+     */
+    private static final class IdBuffer {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && id <= ids[size - 1]) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class IndexedEvent {
+        private final long id;
+        private final long categoryId;
+        private final boolean paid;
+        private final LocalDateTime eventDate;
+        private final String[] terms;
+
+        static IndexedEvent of(Event event) {
+            Set<String> terms = tokenize(event.getTitle());
+            terms.addAll(tokenize(event.getAnnotation()));
+            terms.addAll(tokenize(event.getDescription()));
+            return new IndexedEvent(event.getId(), event.getCategory().getId(), event.isPaid(), event.getEventDate(),
+                    terms.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.event.search;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sorted list of event ids stored as varint-encoded gaps between neighbouring ids.
+ */
+final class PostingList {
+    static final PostingList EMPTY = new PostingList(new byte[0], 0, 0);
+
+    private final byte[] data;
+    private final int size;
+    private final long last;
+
+    private PostingList(byte[] data, int size, long last) {
+        this.data = data;
+        this.size = size;
+        this.last = last;
+    }
+
+    static PostingList of(long[] sortedIds) {
+        byte[] buffer = new byte[sortedIds.length * 10];
+        int length = 0;
+        long previous = 0;
+
+        for (long id : sortedIds) {
+            length = writeVarLong(buffer, length, id - previous);
+            previous = id;
+        }
+        return new PostingList(Arrays.copyOf(buffer, length), sortedIds.length, previous);
+    }
+
+    PostingList with(long id) {
+        if (size > 0 && id <= last) {
+            long[] ids = toArray();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                return this;
+            }
+
+            int insertion = -position - 1;
+            long[] extended = new long[ids.length + 1];
+            System.arraycopy(ids, 0, extended, 0, insertion);
+            extended[insertion] = id;
+            System.arraycopy(ids, insertion, extended, insertion + 1, ids.length - insertion);
+            return of(extended);
+        }
+
+        byte[] extended = Arrays.copyOf(data, data.length + 10);
+        int length = writeVarLong(extended, data.length, id - last);
+        return new PostingList(Arrays.copyOf(extended, length), size + 1, id);
+    }
+
+    PostingList without(long id) {
+        long[] ids = toArray();
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return this;
+        }
+
+        long[] reduced = new long[ids.length - 1];
+        System.arraycopy(ids, 0, reduced, 0, position);
+        System.arraycopy(ids, position + 1, reduced, position, ids.length - position - 1);
+        return reduced.length == 0 ? EMPTY : of(reduced);
+    }
+
+    long[] toArray() {
+        long[] ids = new long[size];
+        int position = 0;
+        long previous = 0;
+
+        for (int i = 0; i < size; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = data[position++];
+                gap |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+
+            previous += gap;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int sizeInBytes() {
+        return data.length;
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
@@ -3,7 +3,6 @@ package ru.practicum.request;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.EventStorage;
 import ru.practicum.event.model.Event;
@@ -32,7 +31,7 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     private final UserStorage userStorage;
 
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional
     public ParticipationRequestDto createRequest(long userId, long eventId, VisibilityType visibility) {
         checkUserExistence(userId);
         Event event = getEvent(eventId);
@@ -49,6 +48,10 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         ParticipationRequest request = requestStorage.save(ParticipationRequestMapper.toRequest(user, event,
                 getRequestStatus(event), visibility));
 
+        if (request.getStatus().equals(RequestStatus.CONFIRMED)) {
+            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
+        }
+
         log.info("Created participation request with id = {}", request.getId());
         return ParticipationRequestMapper.toRequestDto(request);
     }
@@ -62,9 +65,15 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     }
 
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional
     public ParticipationRequestDto cancelRequest(long userId, long requestId) {
         ParticipationRequest request = getRequestByRequestIdAndRequesterId(requestId, userId);
+
+        if (request.getStatus().equals(RequestStatus.CONFIRMED)) {
+            Event event = getEvent(request.getEvent().getId());
+            event.setConfirmedRequests(event.getConfirmedRequests() - 1);
+        }
+
         request.setStatus(RequestStatus.CANCELED);
 
         requestStorage.save(request);
@@ -107,16 +116,14 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     }
 
     private void checkEventAvailable(Event event) {
-        int confirmedRequests = requestStorage.countByEvent_IdAndStatus(event.getId(), RequestStatus.CONFIRMED);
-
-        if (event.getParticipantLimit() != 0 && event.getParticipantLimit() <= confirmedRequests) {
+        if (event.getParticipantLimit() != 0 && event.getParticipantLimit() <= event.getConfirmedRequests()) {
             log.warn("Attempt to create participation request in not available event");
             throw new DataModificationProhibitedException(String.format(Constants.EVENT_NOT_AVAILABLE_MESSAGE, event.getId()));
         }
     }
 
     private Event getEvent(long eventId) {
-        Optional<Event> event = eventStorage.findById(eventId);
+        Optional<Event> event = eventStorage.findWithLockById(eventId);
 
         if (event.isEmpty()) {
             log.warn("Attempt to get nonexistent event with id = {}", eventId);
@@ -5,7 +5,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.request.model.EventRequestsCount;
 import ru.practicum.request.model.ParticipationRequest;
 import ru.practicum.request.model.RequestStatus;
 
@@ -14,11 +17,10 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
-public interface ParticipationRequestStorage extends JpaRepository<ParticipationRequest, Long>, QuerydslPredicateExecutor<ParticipationRequest> {
+public interface ParticipationRequestStorage extends JpaRepository<ParticipationRequest, Long>,
+        QuerydslPredicateExecutor<ParticipationRequest>, ParticipationRequestStorageCustom {
     List<ParticipationRequest> findByEvent_IdAndStatus(Long id, RequestStatus status);
 
-    int countByEvent_IdAndStatus(Long eventId, RequestStatus status);
-
     List<ParticipationRequest> findByRequester_Id(Long userId);
 
     Optional<ParticipationRequest> findByIdAndRequester_Id(Long requestId, Long userId);
@@ -27,7 +29,12 @@ public interface ParticipationRequestStorage extends JpaRepository<Participation
 
     List<ParticipationRequest> findByEvent_Id(Long id);
 
-    List<ParticipationRequest> findByEvent_IdInAndStatus(Collection<Long> ids, RequestStatus status);
+    @Query("select new ru.practicum.request.model.EventRequestsCount(r.event.id, count(r)) " +
+            "from ParticipationRequest r " +
+            "where r.event.id in :eventIds and r.status = :status " +
+            "group by r.event.id")
+    List<EventRequestsCount> countByEventIdsAndStatus(@Param("eventIds") Collection<Long> eventIds,
+                                                      @Param("status") RequestStatus status);
 
     @Override
     @EntityGraph(type = EntityGraph.EntityGraphType.LOAD, attributePaths = {"event", "requester", "event.category", "event.initiator"})
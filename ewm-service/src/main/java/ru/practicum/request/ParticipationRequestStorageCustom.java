@@ -0,0 +1,14 @@
+package ru.practicum.request;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import ru.practicum.request.model.ParticipationRequest;
+
+import java.util.List;
+
+public interface ParticipationRequestStorageCustom {
+    /**
+     * Loads requests with their requester and event without counting all matching rows.
+     */
+    List<ParticipationRequest> findSlice(Predicate predicate, long offset, int limit, OrderSpecifier<?>... order);
+}
@@ -0,0 +1,37 @@
+package ru.practicum.request;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import ru.practicum.event.model.QEvent;
+import ru.practicum.request.model.ParticipationRequest;
+import ru.practicum.request.model.QParticipationRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class ParticipationRequestStorageCustomImpl implements ParticipationRequestStorageCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ParticipationRequest> findSlice(Predicate predicate, long offset, int limit,
+                                                OrderSpecifier<?>... order) {
+        QParticipationRequest request = QParticipationRequest.participationRequest;
+        QEvent event = new QEvent("requestEvent");
+
+        return new JPAQuery<ParticipationRequest>(entityManager)
+                .select(request)
+                .from(request)
+                .leftJoin(request.requester).fetchJoin()
+                .leftJoin(request.event, event).fetchJoin()
+                .leftJoin(event.category).fetchJoin()
+                .leftJoin(event.initiator).fetchJoin()
+                .where(predicate)
+                .orderBy(order)
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+}
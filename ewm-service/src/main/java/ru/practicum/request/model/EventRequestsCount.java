@@ -0,0 +1,13 @@
+package ru.practicum.request.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class EventRequestsCount {
+    private Long eventId;
+    private Long count;
+}
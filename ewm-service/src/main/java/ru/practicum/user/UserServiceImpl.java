@@ -4,7 +4,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
@@ -13,6 +12,7 @@ import ru.practicum.user.dto.UserDto;
 import ru.practicum.user.model.User;
 import ru.practicum.user.model.UserMapper;
 import ru.practicum.utils.Constants;
+import ru.practicum.utils.OffsetPageRequest;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.Arrays;
@@ -49,7 +49,7 @@ public class UserServiceImpl implements UserService {
             users = userStorage.findAllById(Arrays.asList(ids));
         } else {
             Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-            Pageable page = PageRequest.of(from / size, size, sortById);
+            Pageable page = OffsetPageRequest.ofOffset(from, size, sortById);
             users = userStorage.findAll(page).getContent();
         }
 
@@ -27,7 +27,9 @@ public class Constants {
     public static final String CANNOT_MODERATE_NOT_PENDING_REQUEST_MESSAGE = "Cannot moderate participation request because request not in the right status: %s.";
     public static final String CANNOT_MODERATE_REQUEST_WITH_SUCH_STATUS_MESSAGE = "Cannot moderate participation request with such status: %s.";
     public static final String PUBLISHED_EVENT_UPDATE_PROHIBITED_MESSAGE = "Only pending or canceled events can be changed.";
-    public static final String SORT_TYPE_DOES_NOT_EXIST_MESSAGE = "Sort type %s does not exist. Events could be sorted by views or event date.";
+    public static final String SORT_TYPE_DOES_NOT_EXIST_MESSAGE = "Sort type %s does not exist. Events could be sorted by views, event date or relevance.";
+    public static final String INCORRECT_CURSOR_MESSAGE = "Cursor %s is malformed. Use the cursor returned with the previous page.";
+    public static final String CURSOR_ORDER_MISMATCH_MESSAGE = "Cursor of a listing ordered by %s can't continue a listing ordered by %s. Use the cursor returned with the previous page.";
     public static final String EVENT_STATE_DOES_NOT_EXIST_MESSAGE = "Event state %s does not exist.";
     public static final String INITIATOR_CANNOT_CREATE_REQUEST_MESSAGE = "Event initiator can't create participation request in it.";
     public static final String EVENT_NOT_AVAILABLE_MESSAGE = "Event with id=%d has reached participation request limit and not available.";
@@ -53,5 +55,6 @@ public class Constants {
     public static final String APP_NAME = "ewm-main-service";
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_START_VALUE = "0";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
 }
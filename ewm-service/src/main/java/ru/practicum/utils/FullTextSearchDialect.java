@@ -0,0 +1,24 @@
+package ru.practicum.utils;
+
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers full-text search functions over event title, annotation and description. The document expression
+ * must stay identical to the one of events_text_search_idx in schema-postgresql.sql, otherwise the index is not used.
+ */
+public class FullTextSearchDialect extends PostgreSQL10Dialect {
+    private static final String EVENT_DOCUMENT = "(setweight(to_tsvector('simple', coalesce(?1, '')), 'A') || "
+            + "setweight(to_tsvector('simple', coalesce(?2, '')), 'B') || "
+            + "setweight(to_tsvector('simple', coalesce(?3, '')), 'C'))";
+    private static final String QUERY = "plainto_tsquery('simple', ?4)";
+
+    public FullTextSearchDialect() {
+        super();
+        registerFunction("fts_match", new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                EVENT_DOCUMENT + " @@ " + QUERY));
+        registerFunction("fts_rank", new SQLFunctionTemplate(StandardBasicTypes.DOUBLE,
+                "ts_rank(" + EVENT_DOCUMENT + ", " + QUERY + ")"));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.utils;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page request starting at an arbitrary row, so that {@code from} values not divisible by {@code size} return
+ * exactly the requested slice.
+ */
+public class OffsetPageRequest extends PageRequest {
+    private final long offset;
+
+    protected OffsetPageRequest(long offset, int size, Sort sort) {
+        super((int) (offset / size), size, sort);
+        this.offset = offset;
+    }
+
+    public static OffsetPageRequest ofOffset(long offset, int size, Sort sort) {
+        return new OffsetPageRequest(offset, size, sort);
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return super.equals(o) && offset == ((OffsetPageRequest) o).offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(offset);
+    }
+}
@@ -0,0 +1,4 @@
+create index if not exists events_text_search_idx on events using gin ((
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(annotation, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'C')));
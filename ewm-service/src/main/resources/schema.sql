@@ -30,6 +30,8 @@ create table if not exists events (
     paid boolean NOT NULL,
     participant_limit int NOT NULL,
     request_moderation boolean NOT NULL,
+    confirmed_requests int NOT NULL DEFAULT 0,
+    views bigint NOT NULL DEFAULT 0,
     state varchar(10) NOT NULL,
     title varchar(120) NOT NULL,
     CONSTRAINT fk_event_user FOREIGN KEY(user_id) REFERENCES users(id),
@@ -37,6 +39,10 @@ create table if not exists events (
     CONSTRAINT fk_event_location FOREIGN KEY(location_id) REFERENCES locations(id)
 );
 
+alter table events add column if not exists confirmed_requests int NOT NULL DEFAULT 0;
+alter table events add column if not exists views bigint NOT NULL DEFAULT 0;
+create index if not exists events_state_views_idx on events (state, views desc, id);
+
 create table if not exists participation_requests (
     id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     user_id bigint NOT NULL,
@@ -150,6 +150,19 @@ class CategoryServiceImplITest {
         }).doesNotThrowAnyException();
     }
 
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getCategories_WhenFromIsNotMultipleOfSize_ThenReturnSliceStartingAtFrom() {
+        categoryService.createCategory(new NewCategoryDto("name1"));
+        CategoryDto category2 = categoryService.createCategory(new NewCategoryDto("name2"));
+        CategoryDto category3 = categoryService.createCategory(new NewCategoryDto("name3"));
+
+        assertThat(categoryService.getCategories(1, 2))
+                .as("Check that the slice starts at the requested row, not at the page start")
+                .asList()
+                .containsExactly(category2, category3);
+    }
+
     @Test
     @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
     void getCategories_WhenDbIsNotEmpty_ThenReturnNotEmptyList() {
@@ -0,0 +1,189 @@
+package ru.practicum.event;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ExploreWithMeService;
+import ru.practicum.concurrent.VirtualThreads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives GET /events/{id} of a running ewm-service with its production settings against a stub stats server with
+ * fixed latency, once on the Tomcat worker pool and, on Java 21, once on virtual threads. Only the database (H2) and
+ * the SQL logging, which would dominate the measurement, differ from production.
+ * Run with {@code mvn test -pl ewm-service -am -Dload-test=true -Dtest=EventEndpointLoadTest
+ * -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "load-test", matches = "true")
+class EventEndpointLoadTest {
+    private static final int EVENTS = 500;
+    private static final int CALLS = 20_000;
+    private static final int IN_FLIGHT = 1_000;
+    private static final long STATS_LATENCY_MS = 50;
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newCachedThreadPool())
+            .build();
+    private HttpServer statsServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        statsServer = HttpServer.create(new InetSocketAddress("localhost", 0), IN_FLIGHT);
+        statsServer.setExecutor(Executors.newCachedThreadPool());
+        statsServer.createContext("/", exchange -> {
+            boolean lookup = exchange.getRequestURI().getPath().startsWith("/stats");
+            if (lookup) {
+                try {
+                    Thread.sleep(STATS_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = (lookup ? "[]" : "").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (!lookup) {
+                // the stub drops idle keep-alive connections the hit sender would otherwise reuse
+                exchange.getResponseHeaders().add("Connection", "close");
+            }
+            exchange.sendResponseHeaders(lookup ? 200 : 201, body.length == 0 ? -1 : body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        statsServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statsServer.stop(0);
+    }
+
+    @Test
+    void getEvent_WhenManyRequestsAreInFlight_ThenServeThemWithViews() throws Exception {
+        Result platform = run(false);
+        log.info("Tomcat worker pool: {}", platform);
+        assertThat(platform.failed).isZero();
+
+        if (VirtualThreads.isSupported()) {
+            Result virtual = run(true);
+            log.info("Virtual threads: {}", virtual);
+            assertThat(virtual.failed).isZero();
+        }
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExploreWithMeService.class)
+                .run("--server.port=0",
+                        "--stats-server.url=http://localhost:" + statsServer.getAddress().getPort(),
+                        "--ewm.virtual-threads.enabled=" + virtualThreads,
+                        "--logging.level.org.hibernate.SQL=INFO",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO")) {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Long> eventIds = createPublishedEvents(baseUrl);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            double degradedBefore = meterRegistry.counter("ewm.events.enrichment.degraded").count();
+
+            Semaphore inFlight = new Semaphore(IN_FLIGHT);
+            AtomicInteger failed = new AtomicInteger();
+            List<CompletableFuture<?>> responses = new ArrayList<>(CALLS);
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                inFlight.acquire();
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/events/"
+                        + eventIds.get(i % eventIds.size()))).build();
+                responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, e) -> {
+                            if (e != null || response.statusCode() != 200) {
+                                failed.incrementAndGet();
+                            }
+                            inFlight.release();
+                        }));
+            }
+            CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+
+            return new Result(CALLS * 1e9 / elapsed, failed.get(),
+                    (int) (meterRegistry.counter("ewm.events.enrichment.degraded").count() - degradedBefore));
+        }
+    }
+
+    private List<Long> createPublishedEvents(String baseUrl) throws IOException, InterruptedException {
+        long userId = id(post(baseUrl + "/admin/users", "{\"name\":\"load\",\"email\":\"load@mail.ru\"}"));
+        long categoryId = id(post(baseUrl + "/admin/categories", "{\"name\":\"load\"}"));
+        String eventDate = LocalDateTime.now().plusDays(1).withNano(0).toString().replace('T', ' ');
+        String newEvent = String.format("{\"annotation\":\"annotation of a load test event\",\"category\":%d," +
+                "\"description\":\"description of a load test event\",\"eventDate\":\"%s\"," +
+                "\"location\":{\"lat\":55.75,\"lon\":37.62},\"title\":\"load test event\"}", categoryId, eventDate);
+        List<Long> eventIds = new ArrayList<>(EVENTS);
+
+        for (int i = 0; i < EVENTS; i++) {
+            long eventId = id(post(baseUrl + "/users/" + userId + "/events", newEvent));
+            send(HttpRequest.newBuilder(URI.create(baseUrl + "/admin/events/" + eventId))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"stateAction\":\"PUBLISH_EVENT\"}")));
+            eventIds.add(eventId);
+        }
+
+        return eventIds;
+    }
+
+    private String post(String url, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as(response.body()).isBetween(200, 299);
+        return response.body();
+    }
+
+    private long id(String body) {
+        Matcher matcher = ID.matcher(body);
+        assertThat(matcher.find()).isTrue();
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static class Result {
+        private final double throughput;
+        private final int failed;
+        private final int degraded;
+
+        Result(double throughput, int failed, int degraded) {
+            this.throughput = throughput;
+            this.failed = failed;
+            this.degraded = degraded;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests per second, %d of %d failed, %d returned without views",
+                    Math.round(throughput), failed, CALLS, degraded);
+        }
+    }
+}
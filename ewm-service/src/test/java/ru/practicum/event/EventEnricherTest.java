@@ -0,0 +1,109 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EventEnricherTest {
+    @Mock
+    private EventViewsCache eventViewsCache;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalDateTime publishedOn = LocalDateTime.of(2023, 1, 1, 10, 0);
+    private EventEnricher enricher;
+
+    @AfterEach
+    void tearDown() {
+        enricher.shutdown();
+    }
+
+    @Test
+    void fillViews_WhenStatsRespondInTime_ThenSetViewsOfPublishedEvents() {
+        enricher = new EventEnricher(eventViewsCache, meterRegistry, 2, 10, 200, 1000, false);
+        when(eventViewsCache.getViews(Map.of(1L, publishedOn))).thenReturn(Map.of(1L, 5));
+        EventShortDto published = shortDto(1L);
+        EventShortDto pending = shortDto(2L);
+
+        enricher.fillViews(List.of(published, pending), List.of(event(1L, EventState.PUBLISHED),
+                event(2L, EventState.PENDING)));
+
+        assertThat(published.getViews()).isEqualTo(5);
+        assertThat(published.isViewsUnavailable()).isFalse();
+        assertThat(pending.getViews()).isZero();
+        assertThat(meterRegistry.counter("ewm.events.enrichment.degraded").count()).isZero();
+    }
+
+    @Test
+    void fillViews_WhenStatsAreSlow_ThenMarkViewsUnavailable() {
+        enricher = new EventEnricher(eventViewsCache, meterRegistry, 2, 10, 200, 50, false);
+        when(eventViewsCache.getViews(anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return Map.of(1L, 5);
+        });
+        EventShortDto published = shortDto(1L);
+
+        enricher.fillViews(List.of(published), List.of(event(1L, EventState.PUBLISHED)));
+
+        assertThat(published.getViews()).isZero();
+        assertThat(published.isViewsUnavailable()).isTrue();
+        assertThat(meterRegistry.counter("ewm.events.enrichment.degraded").count()).isEqualTo(1);
+    }
+
+    @Test
+    void fillViews_WhenNoLookupPermitsAreLeft_ThenMarkViewsUnavailableWithoutLookup() {
+        Semaphore permits = new Semaphore(0);
+        enricher = new EventEnricher(eventViewsCache, meterRegistry, Executors.newCachedThreadPool(), permits, 1000);
+        EventShortDto published = shortDto(1L);
+
+        enricher.fillViews(List.of(published), List.of(event(1L, EventState.PUBLISHED)));
+
+        assertThat(published.isViewsUnavailable()).isTrue();
+        assertThat(meterRegistry.counter("ewm.events.enrichment.degraded").count()).isEqualTo(1);
+        verifyNoInteractions(eventViewsCache);
+    }
+
+    @Test
+    void fillViews_WhenLookupIsDone_ThenReturnPermit() {
+        Semaphore permits = new Semaphore(1);
+        enricher = new EventEnricher(eventViewsCache, meterRegistry, Executors.newCachedThreadPool(), permits, 1000);
+        when(eventViewsCache.getViews(anyMap())).thenReturn(Map.of(1L, 5));
+        EventShortDto first = shortDto(1L);
+        EventShortDto second = shortDto(1L);
+
+        enricher.fillViews(List.of(first), List.of(event(1L, EventState.PUBLISHED)));
+        enricher.fillViews(List.of(second), List.of(event(1L, EventState.PUBLISHED)));
+
+        assertThat(first.getViews()).isEqualTo(5);
+        assertThat(second.getViews()).isEqualTo(5);
+        assertThat(permits.availablePermits()).isEqualTo(1);
+    }
+
+    private EventShortDto shortDto(long id) {
+        return new EventShortDto(id, "annotation", null, null, null, false, "title");
+    }
+
+    private Event event(long id, EventState state) {
+        Event event = new Event();
+        event.setId(id);
+        event.setState(state);
+        event.setPublishedOn(state == EventState.PUBLISHED ? publishedOn : null);
+        return event;
+    }
+}
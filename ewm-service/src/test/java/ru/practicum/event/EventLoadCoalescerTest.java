@@ -0,0 +1,103 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.event.dto.EventFullDto;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class EventLoadCoalescerTest {
+    private static final int READERS = 4;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void load_WhenSameEventIsReadConcurrently_ThenLoadItOnce() throws Exception {
+        EventLoadCoalescer coalescer = new EventLoadCoalescer(transactionManager, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        EventFullDto eventDto = mock(EventFullDto.class);
+        Supplier<EventFullDto> loader = () -> {
+            loads.incrementAndGet();
+            awaitQuietly(release);
+            return eventDto;
+        };
+
+        Future<EventFullDto> leader = executor.submit(() -> coalescer.load(1L, loader));
+        waitUntil(() -> loads.get() == 1);
+        List<Future<EventFullDto>> followers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            followers.add(executor.submit(() -> coalescer.load(1L, loader)));
+        }
+        waitUntil(() -> meterRegistry.counter("ewm.events.loads.coalesced").count() == READERS);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(eventDto);
+        for (Future<EventFullDto> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(eventDto);
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void load_WhenLoadFails_ThenRethrowToWaitingReadersAndLoadAgainLater() throws Exception {
+        EventLoadCoalescer coalescer = new EventLoadCoalescer(transactionManager, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<EventFullDto> loader = () -> {
+            loads.incrementAndGet();
+            awaitQuietly(release);
+            throw new EntityNotFoundException("Event with id = 1 not found");
+        };
+
+        Future<EventFullDto> leader = executor.submit(() -> coalescer.load(1L, loader));
+        waitUntil(() -> loads.get() == 1);
+        Future<EventFullDto> follower = executor.submit(() -> coalescer.load(1L, loader));
+        waitUntil(() -> meterRegistry.counter("ewm.events.loads.coalesced").count() == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(EntityNotFoundException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(EntityNotFoundException.class);
+        assertThatThrownBy(() -> coalescer.load(1L, loader)).isInstanceOf(EntityNotFoundException.class);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition is not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.EndpointStats;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsLookupBatcher;
+import ru.practicum.UriMatch;
+import ru.practicum.utils.Constants;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventViewsCacheTest {
+    @Mock
+    private StatsLookupBatcher statsLookupBatcher;
+    @Mock
+    private StatsClient statsClient;
+    @Captor
+    private ArgumentCaptor<List<String>> urisCaptor;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EventViewsCache cache;
+    private final LocalDateTime publishedOn = LocalDateTime.of(2023, 1, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        cache = new EventViewsCache(statsLookupBatcher, statsClient, meterRegistry, 60, 100);
+    }
+
+    @Test
+    void getViews_WhenEventsAreNotCached_ThenLoadThemWithOneStatsRequest() {
+        when(statsLookupBatcher.getStatistics(eq(publishedOn), any(LocalDateTime.class), anyList(), eq(true)))
+                .thenReturn(List.of(new EndpointStats(Constants.APP_NAME, "/events/1", 5)));
+
+        Map<Long, Integer> views = cache.getViews(Map.of(1L, publishedOn, 2L, publishedOn.plusDays(1)));
+
+        assertThat(views).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 5, 2L, 0));
+        verify(statsLookupBatcher, times(1)).getStatistics(eq(publishedOn), any(LocalDateTime.class),
+                urisCaptor.capture(), eq(true));
+        assertThat(urisCaptor.getValue()).containsExactlyInAnyOrder("/events/1", "/events/2");
+    }
+
+    @Test
+    void getViews_WhenSomeEventsAreCached_ThenRequestOnlyMissingOnes() {
+        when(statsLookupBatcher.getStatistics(any(LocalDateTime.class), any(LocalDateTime.class), anyList(), eq(true)))
+                .thenReturn(List.of(new EndpointStats(Constants.APP_NAME, "/events/1", 5)))
+                .thenReturn(List.of(new EndpointStats(Constants.APP_NAME, "/events/2", 3)));
+
+        assertThat(cache.getViews(1L, publishedOn)).isEqualTo(5);
+        Map<Long, Integer> views = cache.getViews(Map.of(1L, publishedOn, 2L, publishedOn));
+
+        assertThat(views).containsExactlyInAnyOrderEntriesOf(Map.of(1L, 5, 2L, 3));
+        verify(statsLookupBatcher, times(2)).getStatistics(any(LocalDateTime.class), any(LocalDateTime.class),
+                urisCaptor.capture(), eq(true));
+        assertThat(urisCaptor.getAllValues().get(1)).containsExactly("/events/2");
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadApproximateViews_WhenCalled_ThenRequestApproximateUniqueHitsBypassingCache() {
+        when(statsClient.getStatistics(eq(publishedOn), any(LocalDateTime.class), anyList(), eq(true), eq(true),
+                eq(UriMatch.EXACT)))
+                .thenReturn(List.of(new EndpointStats(Constants.APP_NAME, "/events/1", 4)));
+
+        assertThat(cache.loadApproximateViews(Map.of(1L, publishedOn))).containsExactlyEntriesOf(Map.of(1L, 4));
+
+        verifyNoInteractions(statsLookupBatcher);
+    }
+}
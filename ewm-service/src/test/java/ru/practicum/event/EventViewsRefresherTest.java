@@ -0,0 +1,58 @@
+package ru.practicum.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.event.model.EventPublication;
+import ru.practicum.event.model.EventState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventViewsRefresherTest {
+    @Mock
+    private EventStorage eventStorage;
+    @Mock
+    private EventViewsCache eventViewsCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private final LocalDateTime publishedOn = LocalDateTime.of(2023, 1, 1, 10, 0);
+
+    @Test
+    void refresh_WhenEventsArePublished_ThenCopyViewsBatchByBatch() {
+        EventViewsRefresher refresher = new EventViewsRefresher(eventStorage, eventViewsCache, transactionManager, 2);
+        when(eventStorage.findPublications(eq(EventState.PUBLISHED), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new EventPublication(1L, publishedOn), new EventPublication(2L, publishedOn)));
+        when(eventStorage.findPublications(eq(EventState.PUBLISHED), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(new EventPublication(5L, publishedOn)));
+        when(eventViewsCache.loadApproximateViews(Map.of(1L, publishedOn, 2L, publishedOn))).thenReturn(Map.of(1L, 7, 2L, 0));
+        when(eventViewsCache.loadApproximateViews(Map.of(5L, publishedOn))).thenReturn(Map.of(5L, 3));
+
+        refresher.refresh();
+
+        verify(eventStorage).updateViews(1L, 7);
+        verify(eventStorage).updateViews(2L, 0);
+        verify(eventStorage).updateViews(5L, 3);
+        verify(eventStorage, times(2)).findPublications(eq(EventState.PUBLISHED), anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void refresh_WhenStatsServiceFails_ThenKeepStoredViews() {
+        EventViewsRefresher refresher = new EventViewsRefresher(eventStorage, eventViewsCache, transactionManager, 2);
+        when(eventStorage.findPublications(eq(EventState.PUBLISHED), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new EventPublication(1L, publishedOn)));
+        when(eventViewsCache.loadApproximateViews(anyMap())).thenThrow(new IllegalStateException("stats server is down"));
+
+        refresher.refresh();
+
+        verify(eventStorage, never()).updateViews(anyLong(), anyLong());
+    }
+}
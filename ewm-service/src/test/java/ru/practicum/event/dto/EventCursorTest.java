@@ -0,0 +1,52 @@
+package ru.practicum.event.dto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ValidationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class EventCursorTest {
+    @Test
+    void decode_WhenCursorWasEncoded_ThenReturnSamePosition() {
+        EventCursor afterId = EventCursor.decode(EventCursor.afterId(42).encode());
+        EventCursor afterViews = EventCursor.decode(EventCursor.afterViews(120, 7).encode());
+        EventCursor afterRank = EventCursor.decode(EventCursor.afterRank(0.06079271f, 9).encode());
+
+        assertThat(afterId.getOrder()).isEqualTo(EventCursor.Order.ID);
+        assertThat(afterId.getAfterId()).isEqualTo(42);
+        assertThat(afterId.getKey()).isNull();
+        assertThat(afterViews.getOrder()).isEqualTo(EventCursor.Order.VIEWS);
+        assertThat(afterViews.getViews()).isEqualTo(120);
+        assertThat(afterViews.getAfterId()).isEqualTo(7);
+        assertThat(afterRank.getOrder()).isEqualTo(EventCursor.Order.RELEVANCE);
+        assertThat(afterRank.getRank()).isEqualTo(0.06079271f);
+        assertThat(afterRank.getAfterId()).isEqualTo(9);
+    }
+
+    @Test
+    void requireOrder_WhenCursorBelongsToAnotherOrder_ThenThrowsValidationException() {
+        EventCursor afterId = EventCursor.decode(EventCursor.afterId(42).encode());
+        EventCursor relevance = EventCursor.decode(EventCursor.afterRank(0.5, 20).encode());
+
+        assertThat(afterId.requireOrder(EventCursor.Order.ID)).isSameAs(afterId);
+        assertThatExceptionOfType(ValidationException.class)
+                .isThrownBy(() -> afterId.requireOrder(EventCursor.Order.VIEWS));
+        assertThatExceptionOfType(ValidationException.class)
+                .isThrownBy(() -> relevance.requireOrder(EventCursor.Order.ID));
+    }
+
+    @Test
+    void decode_WhenCursorIsMalformed_ThenThrowsValidationException() {
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("not a cursor"));
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("aWQ6LTE"));
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("cGFnZToy"));
+        // offset:20, an offset cursor that doesn't name the order it belongs to
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("b2Zmc2V0OjIw"));
+        // views:20, a views cursor without the id of its row
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("dmlld3M6MjA"));
+        // relevance:NaN:3
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> EventCursor.decode("cmVsZXZhbmNlOk5hTjoz"));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.event.search;
+
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.EventStorage;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EventSearchIndexTest {
+    @Mock
+    private EventStorage eventStorage;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalDateTime eventDate = LocalDateTime.of(2030, 1, 1, 19, 0);
+    private EventSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EventSearchIndex(eventStorage, meterRegistry, true, 2);
+        List<Event> events = List.of(
+                event(1L, 1L, false, "Jazz evening", "Live jazz in the park"),
+                event(2L, 2L, true, "Rock concert", "Loud rock and jazz covers"),
+                event(3L, 1L, true, "Jazz festival", "Three days of music"));
+        when(eventStorage.findAll(any(Predicate.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(events.subList(0, 2), PageRequest.of(0, 2), 3))
+                .thenReturn(new PageImpl<>(events.subList(2, 3), PageRequest.of(1, 2), 3));
+        index.rebuild();
+    }
+
+    @Test
+    void search_WhenAllWordsMatch_ThenReturnEventIdsInOrder() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("JAZZ", null, null, null, null)).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("jazz, music!", null, null, null, null)).containsExactly(3L);
+        assertThat(index.search("jazz opera", null, null, null, null)).isEmpty();
+    }
+
+    @Test
+    void search_WhenFiltersGiven_ThenIntersectWithThem() {
+        assertThat(index.search("jazz", new Long[]{1L}, null, null, null)).containsExactly(1L, 3L);
+        assertThat(index.search("jazz", new Long[]{1L}, true, null, null)).containsExactly(3L);
+        assertThat(index.search("jazz", null, null, eventDate, null)).containsExactly(2L, 3L);
+        assertThat(index.search("jazz", null, null, null, eventDate.plusDays(2))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void update_WhenEventCanceledOrPublished_ThenIndexChanges() {
+        Event canceled = event(3L, 1L, true, "Jazz festival", "Three days of music");
+        canceled.setState(EventState.CANCELED);
+        index.update(canceled);
+
+        assertThat(index.search("jazz", null, null, null, null)).containsExactly(1L, 2L);
+        assertThat(index.search("music", null, null, null, null)).isEmpty();
+
+        index.update(event(7L, 2L, false, "Blues night", "Jazz and blues"));
+
+        assertThat(index.search("jazz", null, null, null, null)).containsExactly(1L, 2L, 7L);
+        assertThat(meterRegistry.get("ewm.search.index.documents").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("ewm.search.index.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void rebuild_WhenEventIsOnTwoPages_ThenIndexItOnce() {
+        Event first = event(1L, 1L, false, "Jazz evening", "Live jazz in the park");
+        Event second = event(2L, 2L, true, "Rock concert", "Loud rock and jazz covers");
+        when(eventStorage.findAll(any(Predicate.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(first, second), PageRequest.of(0, 2), 3))
+                .thenReturn(new PageImpl<>(List.of(second), PageRequest.of(1, 2), 3));
+
+        index.rebuild();
+
+        assertThat(index.search("jazz", null, null, null, null)).containsExactly(1L, 2L);
+        assertThat(meterRegistry.get("ewm.search.index.documents").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void postingList_WhenIdsAddedAndRemoved_ThenKeepsSortedIds() {
+        PostingList list = PostingList.of(new long[]{3L, 130L, 100_000L, 5_000_000_000L})
+                .with(1L)
+                .with(200L)
+                .with(6_000_000_000L)
+                .with(130L)
+                .without(100_000L);
+
+        assertThat(list.toArray()).containsExactly(1L, 3L, 130L, 200L, 5_000_000_000L, 6_000_000_000L);
+        assertThat(list.size()).isEqualTo(6);
+        assertThat(list.sizeInBytes()).isLessThan(6 * Long.BYTES);
+    }
+
+    private Event event(long id, long categoryId, boolean paid, String title, String description) {
+        Event event = new Event();
+        event.setId(id);
+        event.setCategory(new Category(categoryId, "category" + categoryId));
+        event.setPaid(paid);
+        event.setTitle(title);
+        event.setAnnotation(title);
+        event.setDescription(description);
+        event.setEventDate(eventDate.plusDays(id - 1));
+        event.setState(EventState.PUBLISHED);
+        return event;
+    }
+}
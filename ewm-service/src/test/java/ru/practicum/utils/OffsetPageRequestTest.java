@@ -0,0 +1,21 @@
+package ru.practicum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetPageRequestTest {
+    @Test
+    void equals_WhenComparedWithPageRequest_ThenReturnFalse() {
+        Sort sort = Sort.by("id");
+        OffsetPageRequest offsetPage = OffsetPageRequest.ofOffset(20, 10, sort);
+        PageRequest page = PageRequest.of(2, 10, sort);
+
+        assertThat(offsetPage.equals(page)).isFalse();
+        assertThat(page.equals(offsetPage)).isFalse();
+        assertThat(offsetPage).isEqualTo(OffsetPageRequest.ofOffset(20, 10, sort))
+                .isNotEqualTo(OffsetPageRequest.ofOffset(25, 10, sort));
+    }
+}
@@ -1,5 +1,10 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
@@ -18,18 +23,38 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class StatsClient {
     private final RestTemplate restTemplate;
+    private final int queryBodyMinUris;
     private static final String SAVE_ENDPOINT_PATH = "/hit";
-    private static final String GET_STATS_PATH_WITH_URIS = "/stats?start={start}&end={end}&uris={uris}&unique={unique}";
-    private static final String GET_STATS_PATH_WITHOUT_URIS = "/stats?start={start}&end={end}&unique={unique}";
+    private static final String SAVE_ENDPOINTS_PATH = "/hit/batch";
+    private static final String GET_STATS_PATH_WITH_URIS = "/stats?start={start}&end={end}&uris={uris}&unique={unique}" +
+            "&approximate={approximate}&match={match}";
+    private static final String GET_STATS_PATH_WITHOUT_URIS = "/stats?start={start}&end={end}&unique={unique}" +
+            "&approximate={approximate}";
+    private static final String QUERY_STATS_PATH = "/stats/query";
+    private static final String STREAM_STATS_PATH = "/stats/stream?start={start}&end={end}&uris={uris}&unique={unique}" +
+            "&match={match}&limit={limit}";
+    private static final String STREAM_ALL_STATS_PATH = "/stats/stream?start={start}&end={end}&unique={unique}" +
+            "&limit={limit}";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final ObjectReader STATS_READER = new ObjectMapper().readerFor(EndpointStats.class);
     public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-server.http.max-connections:20}") int maxConnections,
+                       @Value("${stats-server.query-body.min-uris:50}") int queryBodyMinUris,
+                       RestTemplateBuilder builder) {
+        this.queryBodyMinUris = queryBodyMinUris;
+        HttpClient httpClient = HttpClientBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .build();
         restTemplate = builder.uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
                 .build();
     }
 
@@ -40,19 +65,53 @@ public class StatsClient {
             restTemplate.exchange(SAVE_ENDPOINT_PATH, HttpMethod.POST, requestEntity, Object.class);
         } catch (HttpStatusCodeException e) {
             throw new DataRecordException(String.format("An error occurred while saving endpoint request stats. Status " +
-                    "code: %s. Error message: %s.", e.getStatusCode(), e.getMessage()));
+                    "code: %s. Error message: %s.", e.getStatusCode(), e.getMessage()), e);
+        }
+    }
+
+    public void saveEndpointRequests(List<InputEndpointHit> inputEndpointHits) {
+        HttpEntity<List<InputEndpointHit>> requestEntity = new HttpEntity<>(inputEndpointHits, defaultHeaders());
+
+        try {
+            restTemplate.exchange(SAVE_ENDPOINTS_PATH, HttpMethod.POST, requestEntity, Object.class);
+        } catch (HttpStatusCodeException e) {
+            throw new DataRecordException(String.format("An error occurred while saving %d endpoint requests stats. " +
+                    "Status code: %s. Error message: %s.", inputEndpointHits.size(), e.getStatusCode(), e.getMessage()), e);
         }
     }
 
+    /**
+     * Returns statistics of the given uris exactly, without uris that merely start with one of them.
+     */
     public List<EndpointStats> getStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return getStatistics(start, end, uris, unique, UriMatch.EXACT);
+    }
+
+    public List<EndpointStats> getStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                             UriMatch match) {
+        return getStatistics(start, end, uris, unique, false, match);
+    }
+
+    /**
+     * Returns statistics where unique hits may be counted approximately from hourly sketches, which the server
+     * answers without scanning the raw hits of the period.
+     */
+    public List<EndpointStats> getStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                             boolean approximate, UriMatch match) {
         ResponseEntity<EndpointStats[]> responseEntity;
         try {
-            if (uris == null || uris.isEmpty()) {
+            if (uris != null && uris.size() >= queryBodyMinUris) {
+                // long uri lists don't fit into a query string, so they are sent in the body
+                StatsQuery query = new StatsQuery(start.format(FORMATTER), end.format(FORMATTER), uris, unique,
+                        approximate, match);
+                responseEntity = restTemplate.postForEntity(QUERY_STATS_PATH,
+                        new HttpEntity<>(query, defaultHeaders()), EndpointStats[].class);
+            } else if (uris == null || uris.isEmpty()) {
                 responseEntity = restTemplate.getForEntity(GET_STATS_PATH_WITHOUT_URIS, EndpointStats[].class,
-                        parameters(start, end, uris, unique));
+                        parameters(start, end, uris, unique, approximate, match));
             } else {
                 responseEntity = restTemplate.getForEntity(GET_STATS_PATH_WITH_URIS, EndpointStats[].class,
-                        parameters(start, end, uris, unique));
+                        parameters(start, end, uris, unique, approximate, match));
             }
         } catch (HttpStatusCodeException e) {
             throw new DataRetrievalException(String.format("An error occurred while getting statistics. Status " +
@@ -62,6 +121,38 @@ public class StatsClient {
         return List.of(responseEntity.getBody());
     }
 
+    /**
+     * Passes at most {@code limit} most hit endpoints to the consumer as they are read from the response, without
+     * holding the whole result in memory. Uris are matched exactly.
+     *
+     * @return the number of consumed endpoints
+     */
+    public int streamStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, int limit,
+                                Consumer<EndpointStats> consumer) {
+        Map<String, Object> parameters = parameters(start, end, uris, unique, false, UriMatch.EXACT);
+        parameters.put("limit", limit);
+        String path = (uris == null || uris.isEmpty()) ? STREAM_ALL_STATS_PATH : STREAM_STATS_PATH;
+
+        try {
+            Integer consumed = restTemplate.execute(path, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(NDJSON)),
+                    response -> {
+                        int count = 0;
+                        try (MappingIterator<EndpointStats> rows = STATS_READER.readValues(response.getBody())) {
+                            while (rows.hasNextValue()) {
+                                consumer.accept(rows.nextValue());
+                                count++;
+                            }
+                        }
+                        return count;
+                    }, parameters);
+            return consumed == null ? 0 : consumed;
+        } catch (HttpStatusCodeException e) {
+            throw new DataRetrievalException(String.format("An error occurred while streaming statistics. Status " +
+                    "code: %s. Error message: %s.", e.getStatusCode(), e.getMessage()));
+        }
+    }
+
     private HttpHeaders defaultHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -69,7 +160,8 @@ public class StatsClient {
         return headers;
     }
 
-    private Map<String, Object> parameters(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+    private Map<String, Object> parameters(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                           boolean approximate, UriMatch match) {
         Map<String, Object> parameters = new HashMap<>();
 
         parameters.put("start", URLEncoder.encode(start.format(FORMATTER), StandardCharsets.UTF_8));
@@ -77,9 +169,11 @@ public class StatsClient {
 
         if (uris != null && !uris.isEmpty()) {
             parameters.put("uris", uris.toArray());
+            parameters.put("match", match);
         }
 
         parameters.put("unique", unique);
+        parameters.put("approximate", approximate);
 
         return parameters;
     }
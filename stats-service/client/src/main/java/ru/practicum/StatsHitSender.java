@@ -0,0 +1,187 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.spool.HitSpool;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class StatsHitSender {
+    private final StatsClient statsClient;
+    private final HitSpool hitSpool;
+    private final boolean async;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<InputEndpointHit> queue;
+    private final Counter droppedHits;
+    private final Counter failedHits;
+    private final ScheduledExecutorService sender;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public StatsHitSender(StatsClient statsClient, @Nullable HitSpool hitSpool, MeterRegistry meterRegistry,
+                          @Value("${stats-server.async.enabled:true}") boolean async,
+                          @Value("${stats-server.async.queue-capacity:10000}") int queueCapacity,
+                          @Value("${stats-server.async.batch-size:100}") int batchSize,
+                          @Value("${stats-server.async.flush-interval-ms:500}") long flushIntervalMs,
+                          @Value("${stats-server.async.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+        this.statsClient = statsClient;
+        this.hitSpool = hitSpool;
+        this.async = async;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.droppedHits = Counter.builder("stats.client.hits.dropped")
+                .description("Hits dropped because the send queue was full")
+                .register(meterRegistry);
+        this.failedHits = Counter.builder("stats.client.hits.failed")
+                .description("Hits lost because the stats server rejected them or could not be reached without a spool")
+                .register(meterRegistry);
+        Gauge.builder("stats.client.queue.size", queue, Collection::size)
+                .description("Hits waiting to be sent to the stats server")
+                .register(meterRegistry);
+        if (hitSpool != null) {
+            Gauge.builder("stats.client.spool.segments", hitSpool, HitSpool::segmentCount)
+                    .description("Spool segments holding hits not yet delivered to the stats server")
+                    .register(meterRegistry);
+        }
+
+        if (async) {
+            sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stats-hit-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sender.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            sender = null;
+        }
+    }
+
+    public void send(InputEndpointHit inputEndpointHit) {
+        if (!async) {
+            statsClient.saveEndpointRequest(inputEndpointHit);
+            return;
+        }
+
+        if (!enqueue(inputEndpointHit)) {
+            droppedHits.increment();
+            log.warn("Stats queue is full, hit {} dropped", inputEndpointHit.getUri());
+            return;
+        }
+
+        if (queue.size() >= batchSize && !sender.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            sender.execute(this::flush);
+        }
+    }
+
+    /**
+     * Runs on a fixed delay, which an exception escaping it would cancel, so failures are logged and counted here.
+     */
+    void flush() {
+        flushScheduled.set(false);
+        List<InputEndpointHit> batch = new ArrayList<>(batchSize);
+
+        try {
+            boolean serverAvailable = replaySpool();
+            while (queue.drainTo(batch, batchSize) > 0) {
+                if (!serverAvailable || !deliver(batch)) {
+                    serverAvailable = false;
+                    spool(batch);
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        } catch (RuntimeException e) {
+            failedHits.increment(batch.size());
+            log.error("Failed to flush {} hits to the stats server", batch.size(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (sender == null) {
+            return;
+        }
+
+        sender.shutdown();
+        if (!sender.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Stats sender did not stop in time");
+        }
+        flush();
+    }
+
+    private boolean replaySpool() {
+        if (hitSpool == null) {
+            return true;
+        }
+
+        List<InputEndpointHit> batch;
+        while (!(batch = hitSpool.peek(batchSize)).isEmpty()) {
+            if (!deliver(batch)) {
+                return false;
+            }
+            hitSpool.acknowledge(batch.size());
+            log.info("Replayed {} spooled hits", batch.size());
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code false} if the batch should be retried later.
+     */
+    private boolean deliver(List<InputEndpointHit> batch) {
+        try {
+            statsClient.saveEndpointRequests(batch);
+            return true;
+        } catch (RuntimeException e) {
+            if (hitSpool != null && !(e.getCause() instanceof HttpClientErrorException)) {
+                log.warn("Stats server is unavailable, {} hits will be retried: {}", batch.size(), e.getMessage());
+                return false;
+            }
+            failedHits.increment(batch.size());
+            log.warn("Failed to send {} hits to the stats server: {}", batch.size(), e.getMessage());
+            return true;
+        }
+    }
+
+    private void spool(List<InputEndpointHit> batch) {
+        try {
+            droppedHits.increment(hitSpool.append(batch));
+        } catch (IOException | RuntimeException e) {
+            failedHits.increment(batch.size());
+            log.error("Failed to spool {} hits: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private boolean enqueue(InputEndpointHit inputEndpointHit) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            return queue.offer(inputEndpointHit);
+        }
+
+        try {
+            queue.put(inputEndpointHit);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+}
@@ -0,0 +1,209 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.DataRetrievalException;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Merges statistics lookups for specific uris that arrive within a short window into one request to the stats
+ * server. The merged request covers the union of the uris and the widest time range, and each caller receives the
+ * statistics of its own uris. Callers wait for their lookup at most the configured timeout.
+ */
+@Slf4j
+@Component
+public class StatsLookupBatcher {
+    private final StatsClient statsClient;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxUris;
+    private final long timeoutMs;
+    private final Counter lookups;
+    private final Counter requests;
+    private final ScheduledExecutorService dispatcher;
+    private final Object lock = new Object();
+    private List<Lookup> pending = new ArrayList<>();
+
+    public StatsLookupBatcher(StatsClient statsClient, MeterRegistry meterRegistry,
+                              @Value("${stats-server.lookup-batch.enabled:true}") boolean enabled,
+                              @Value("${stats-server.lookup-batch.window-ms:5}") long windowMs,
+                              @Value("${stats-server.lookup-batch.max-uris:200}") int maxUris,
+                              @Value("${stats-server.lookup-batch.threads:4}") int threads,
+                              @Value("${stats-server.lookup-batch.timeout-ms:5000}") long timeoutMs) {
+        this.statsClient = statsClient;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxUris = maxUris;
+        this.timeoutMs = timeoutMs;
+        this.lookups = Counter.builder("stats.client.lookups")
+                .description("Statistics lookups submitted for batching")
+                .register(meterRegistry);
+        this.requests = Counter.builder("stats.client.lookups.requests")
+                .description("Requests sent to the stats server for batched lookups")
+                .register(meterRegistry);
+
+        if (enabled) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            dispatcher = Executors.newScheduledThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "stats-lookup-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            dispatcher = null;
+        }
+    }
+
+    public List<EndpointStats> getStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        if (!enabled || uris == null || uris.isEmpty()) {
+            return statsClient.getStatistics(start, end, uris, unique);
+        }
+
+        Lookup lookup = new Lookup(start, end, new LinkedHashSet<>(uris), unique);
+        boolean first;
+        synchronized (lock) {
+            first = pending.isEmpty();
+            pending.add(lookup);
+        }
+        lookups.increment();
+
+        if (first) {
+            try {
+                dispatcher.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+
+        return await(lookup);
+    }
+
+    void flush() {
+        List<Lookup> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        for (List<Lookup> group : group(batch)) {
+            try {
+                dispatcher.execute(() -> send(group));
+            } catch (RejectedExecutionException e) {
+                send(group);
+            }
+        }
+    }
+
+    /**
+     * Sends the pending lookups and lets the dispatcher finish the requests it has already started.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (dispatcher == null) {
+            return;
+        }
+
+        dispatcher.shutdown();
+        flush();
+        try {
+            if (!dispatcher.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Stats lookups did not finish in time");
+                dispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Splits lookups into groups that can share one request: same uniqueness and at most maxUris distinct uris,
+     * unless a single lookup asks for more.
+     */
+    private List<List<Lookup>> group(List<Lookup> batch) {
+        List<List<Lookup>> groups = new ArrayList<>();
+        Map<Boolean, List<Lookup>> byUnique = batch.stream().collect(Collectors.partitioningBy(lookup -> lookup.unique));
+
+        for (List<Lookup> sameUnique : byUnique.values()) {
+            List<Lookup> group = new ArrayList<>();
+            Set<String> uris = new HashSet<>();
+            for (Lookup lookup : sameUnique) {
+                Set<String> merged = new HashSet<>(uris);
+                merged.addAll(lookup.uris);
+                if (!group.isEmpty() && merged.size() > maxUris) {
+                    groups.add(group);
+                    group = new ArrayList<>();
+                    merged = new HashSet<>(lookup.uris);
+                }
+                group.add(lookup);
+                uris = merged;
+            }
+            if (!group.isEmpty()) {
+                groups.add(group);
+            }
+        }
+
+        return groups;
+    }
+
+    private void send(List<Lookup> group) {
+        LocalDateTime start = group.stream().map(lookup -> lookup.start).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime end = group.stream().map(lookup -> lookup.end).max(Comparator.naturalOrder()).orElseThrow();
+        Set<String> uris = new LinkedHashSet<>();
+        group.forEach(lookup -> uris.addAll(lookup.uris));
+
+        try {
+            List<EndpointStats> stats = statsClient.getStatistics(start, end, new ArrayList<>(uris),
+                    group.get(0).unique);
+            requests.increment();
+            log.debug("Sent {} lookups for {} uris to the stats server in one request", group.size(), uris.size());
+            for (Lookup lookup : group) {
+                lookup.result.complete(stats.stream()
+                        .filter(statistics -> lookup.uris.contains(statistics.getUri()))
+                        .collect(Collectors.toList()));
+            }
+        } catch (RuntimeException e) {
+            group.forEach(lookup -> lookup.result.completeExceptionally(e));
+        }
+    }
+
+    private List<EndpointStats> await(Lookup lookup) {
+        try {
+            return lookup.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DataRetrievalException("Timed out waiting for statistics", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataRetrievalException("Interrupted while waiting for statistics", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataRetrievalException("An error occurred while getting statistics", e.getCause());
+        }
+    }
+
+    private static class Lookup {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Set<String> uris;
+        private final boolean unique;
+        private final CompletableFuture<List<EndpointStats>> result = new CompletableFuture<>();
+
+        Lookup(LocalDateTime start, LocalDateTime end, Set<String> uris, boolean unique) {
+            this.start = start;
+            this.end = end;
+            this.uris = uris;
+            this.unique = unique;
+        }
+    }
+}
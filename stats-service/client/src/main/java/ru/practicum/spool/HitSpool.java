@@ -0,0 +1,384 @@
+package ru.practicum.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.InputEndpointHit;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only spool of hits kept in memory-mapped segment files.
+ * <p>
+ * Segment layout: {@code [magic][read offset]} header followed by {@code [length][crc32][payload]} records.
+ * The length is written last, so a record torn by a crash is never read back. Hits are replayed at least once:
+ * the read offset moves only after the caller acknowledges a batch.
+ * <p>
+ * Segments are unmapped when they are deleted and when the spool is closed, rather than when the garbage collector
+ * gets to their buffers; a closed spool accepts no more hits.
+ */
+@Slf4j
+public class HitSpool implements Closeable {
+    private static final int MAGIC = 0x53504f4c;
+    private static final int HEADER_SIZE = 8;
+    private static final int READ_OFFSET_POSITION = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final Unmapper UNMAPPER = Unmapper.load();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSegmentId;
+    private boolean closed;
+
+    public HitSpool(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Spool segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("Spool must be allowed to keep at least 2 segments");
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends hits to the spool. If the disk limit is reached, the oldest segment is discarded.
+     *
+     * @return number of unsent hits discarded to stay within the disk limit, including hits with a missing field or
+     * one too long to encode
+     */
+    public synchronized int append(List<InputEndpointHit> hits) throws IOException {
+        if (closed) {
+            throw new IOException("Spool " + directory + " is closed");
+        }
+
+        int dropped = 0;
+        Segment tail = segments.peekLast();
+
+        for (InputEndpointHit hit : hits) {
+            byte[] payload = encode(hit);
+            if (payload == null || RECORD_HEADER_SIZE + payload.length > segmentSize - HEADER_SIZE) {
+                log.warn("Hit {} can't be spooled and was skipped", hit.getUri());
+                dropped++;
+                continue;
+            }
+
+            if (tail == null || tail.remaining() < RECORD_HEADER_SIZE + payload.length) {
+                if (tail != null) {
+                    tail.buffer.force();
+                }
+                tail = createSegment();
+                while (segments.size() > maxSegments) {
+                    Segment evicted = segments.pollFirst();
+                    dropped += evicted.countUnread();
+                    delete(evicted);
+                }
+            }
+
+            tail.write(payload);
+        }
+
+        if (tail != null) {
+            tail.buffer.force();
+        }
+        if (dropped > 0) {
+            log.warn("Spool is full, {} hits discarded", dropped);
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns up to {@code maxHits} oldest unacknowledged hits without removing them.
+     */
+    public synchronized List<InputEndpointHit> peek(int maxHits) {
+        List<InputEndpointHit> hits = new ArrayList<>();
+        Segment head = headWithUnread();
+        if (head == null) {
+            return hits;
+        }
+
+        int position = head.readOffset;
+        while (hits.size() < maxHits && position < head.writeOffset) {
+            int length = head.buffer.getInt(position);
+            hits.add(decode(head.read(position + RECORD_HEADER_SIZE, length)));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return hits;
+    }
+
+    /**
+     * Marks the first {@code count} hits returned by {@link #peek(int)} as delivered.
+     */
+    public synchronized void acknowledge(int count) {
+        Segment head = headWithUnread();
+        if (head == null) {
+            return;
+        }
+
+        int position = head.readOffset;
+        for (int i = 0; i < count && position < head.writeOffset; i++) {
+            position += RECORD_HEADER_SIZE + head.buffer.getInt(position);
+        }
+        head.setReadOffset(position);
+        headWithUnread();
+    }
+
+    public synchronized boolean isEmpty() {
+        return headWithUnread() == null;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        segments.forEach(Segment::release);
+        segments.clear();
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, id, segmentSize);
+            segments.addLast(segment);
+            nextSegmentId = id + 1;
+        }
+
+        headWithUnread();
+        log.info("Recovered {} spool segments from {}", segments.size(), directory);
+    }
+
+    private Segment headWithUnread() {
+        Segment head = segments.peekFirst();
+        while (head != null && head.readOffset >= head.writeOffset && head != segments.peekLast()) {
+            delete(segments.pollFirst());
+            head = segments.peekFirst();
+        }
+        return head == null || head.readOffset >= head.writeOffset ? null : head;
+    }
+
+    private Segment createSegment() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextSegmentId, SEGMENT_SUFFIX));
+        Segment segment = Segment.open(file, nextSegmentId++, segmentSize);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void delete(Segment segment) {
+        segment.release();
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("Failed to delete spool segment {}: {}", segment.file, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns {@code null} if a field is missing or longer than the 64 KB {@link DataOutputStream#writeUTF} takes.
+     */
+    private static byte[] encode(InputEndpointHit hit) {
+        if (hit.getApp() == null || hit.getUri() == null || hit.getIp() == null || hit.getTimestamp() == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(hit.getApp());
+            out.writeUTF(hit.getUri());
+            out.writeUTF(hit.getIp());
+            out.writeUTF(hit.getTimestamp());
+        } catch (UTFDataFormatException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static InputEndpointHit decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new InputEndpointHit(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final long id;
+        private final MappedByteBuffer buffer;
+        private int readOffset;
+        private int writeOffset;
+
+        private Segment(Path file, long id, MappedByteBuffer buffer) {
+            this.file = file;
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path file, long id, int size) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+            }
+
+            Segment segment = new Segment(file, id, buffer);
+            if (buffer.getInt(0) != MAGIC) {
+                buffer.putInt(0, MAGIC);
+                segment.setReadOffset(HEADER_SIZE);
+                segment.writeOffset = HEADER_SIZE;
+                return segment;
+            }
+
+            segment.writeOffset = segment.scanValidRecords();
+            segment.readOffset = Math.min(Math.max(buffer.getInt(READ_OFFSET_POSITION), HEADER_SIZE),
+                    segment.writeOffset);
+            return segment;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writeOffset;
+        }
+
+        void write(byte[] payload) {
+            buffer.putInt(writeOffset + 4, checksum(payload));
+            ByteBuffer target = buffer.duplicate();
+            target.position(writeOffset + RECORD_HEADER_SIZE);
+            target.put(payload);
+            buffer.putInt(writeOffset, payload.length);
+            writeOffset += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        byte[] read(int position, int length) {
+            byte[] payload = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position);
+            source.get(payload);
+            return payload;
+        }
+
+        void setReadOffset(int readOffset) {
+            this.readOffset = readOffset;
+            buffer.putInt(READ_OFFSET_POSITION, readOffset);
+        }
+
+        void release() {
+            buffer.force();
+            UNMAPPER.unmap(buffer);
+        }
+
+        int countUnread() {
+            int count = 0;
+            for (int position = readOffset; position < writeOffset; count++) {
+                position += RECORD_HEADER_SIZE + buffer.getInt(position);
+            }
+            return count;
+        }
+
+        private int scanValidRecords() {
+            int position = HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                    if (length != 0 || buffer.getInt(position + 4) != 0) {
+                        // checksum and payload are written before the length, so this record was torn by a crash
+                        log.warn("Spool segment {} has a torn record at offset {}, dropping it", id, position);
+                        clear(position);
+                    }
+                    break;
+                }
+
+                byte[] payload = read(position + RECORD_HEADER_SIZE, length);
+                if (checksum(payload) != buffer.getInt(position + 4)) {
+                    log.warn("Spool segment {} is corrupted at offset {}, dropping the rest of it", id, position);
+                    clear(position);
+                    break;
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            return position;
+        }
+
+        private void clear(int from) {
+            for (int position = from; position < buffer.capacity(); position++) {
+                buffer.put(position, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Releases a mapped buffer at once through {@code sun.misc.Unsafe#invokeCleaner}; where that is unavailable,
+     * the mapping is left to the garbage collector.
+     */
+    private static final class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static Unmapper load() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return new Unmapper(theUnsafe.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.warn("Spool segments will be unmapped by the garbage collector: {}", e.getMessage());
+                return new Unmapper(null, null);
+            }
+        }
+
+        void unmap(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Failed to unmap a spool segment: {}", e.getMessage());
+            }
+        }
+    }
+}
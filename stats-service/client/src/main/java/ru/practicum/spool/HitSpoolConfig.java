@@ -0,0 +1,20 @@
+package ru.practicum.spool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class HitSpoolConfig {
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stats-server.spool.enabled", havingValue = "true")
+    public HitSpool hitSpool(@Value("${stats-server.spool.dir}") String directory,
+                             @Value("${stats-server.spool.segment-size-bytes:4194304}") int segmentSize,
+                             @Value("${stats-server.spool.max-segments:16}") int maxSegments) throws IOException {
+        return new HitSpool(Path.of(directory), segmentSize, maxSegments);
+    }
+}
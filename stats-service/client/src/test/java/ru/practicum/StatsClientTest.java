@@ -0,0 +1,99 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientTest {
+    private static final String RESPONSE = "[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}]";
+    private final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 0);
+    private final LocalDateTime end = LocalDateTime.of(2023, 2, 1, 10, 0);
+    private MockRestServiceServer server;
+    private StatsClient statsClient;
+
+    @BeforeEach
+    void setUp() {
+        MockServerRestTemplateCustomizer customizer = new MockServerRestTemplateCustomizer();
+        statsClient = new StatsClient("http://localhost:9090", 20, 3, new RestTemplateBuilder(customizer));
+        server = customizer.getServer();
+    }
+
+    @Test
+    void getStatistics_WhenFewUris_ThenSendThemInQueryString() {
+        server.expect(requestTo(startsWith("http://localhost:9090/stats?")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(queryParam("uris", "%2Fevents%2F1%2C%2Fevents%2F2"))
+                .andExpect(queryParam("match", "EXACT"))
+                .andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        List<EndpointStats> stats = statsClient.getStatistics(start, end, List.of("/events/1", "/events/2"), true);
+
+        assertThat(stats).containsExactly(new EndpointStats("ewm-main-service", "/events/1", 5));
+        server.verify();
+    }
+
+    @Test
+    void getStatistics_WhenUrisReachThreshold_ThenSendThemInBody() {
+        server.expect(requestTo("http://localhost:9090/stats/query"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.start").value("2023-01-01 10:00:00"))
+                .andExpect(jsonPath("$.uris.length()").value(3))
+                .andExpect(jsonPath("$.unique").value(true))
+                .andExpect(jsonPath("$.approximate").value(false))
+                .andExpect(jsonPath("$.match").value("EXACT"))
+                .andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        List<EndpointStats> stats = statsClient.getStatistics(start, end,
+                List.of("/events/1", "/events/2", "/events/3"), true);
+
+        assertThat(stats).containsExactly(new EndpointStats("ewm-main-service", "/events/1", 5));
+        server.verify();
+    }
+
+    @Test
+    void getStatistics_WhenApproximate_ThenAskServerForApproximateUniqueHits() {
+        server.expect(requestTo(startsWith("http://localhost:9090/stats?")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(queryParam("unique", "true"))
+                .andExpect(queryParam("approximate", "true"))
+                .andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        List<EndpointStats> stats = statsClient.getStatistics(start, end, List.of("/events/1"), true, true,
+                UriMatch.EXACT);
+
+        assertThat(stats).containsExactly(new EndpointStats("ewm-main-service", "/events/1", 5));
+        server.verify();
+    }
+
+    @Test
+    void streamStatistics_WhenServerStreamsRows_ThenConsumeThemOneByOne() {
+        server.expect(requestTo(startsWith("http://localhost:9090/stats/stream?")))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(queryParam("limit", "2"))
+                .andExpect(header("Accept", "application/x-ndjson"))
+                .andRespond(withSuccess("{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}\n" +
+                        "{\"app\":\"ewm-main-service\",\"uri\":\"/events/2\",\"hits\":3}\n",
+                        MediaType.parseMediaType("application/x-ndjson")));
+        List<EndpointStats> consumed = new ArrayList<>();
+
+        int count = statsClient.streamStatistics(start, end, null, false, 2, consumed::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(consumed).containsExactly(new EndpointStats("ewm-main-service", "/events/1", 5),
+                new EndpointStats("ewm-main-service", "/events/2", 3));
+        server.verify();
+    }
+}
@@ -0,0 +1,204 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.exception.DataRecordException;
+import ru.practicum.spool.HitSpool;
+import ru.practicum.spool.HitSpoolFiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsHitSenderTest {
+    @Mock
+    private StatsClient statsClient;
+    @Captor
+    private ArgumentCaptor<List<InputEndpointHit>> batchCaptor;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StatsHitSender sender;
+    private final InputEndpointHit hit = new InputEndpointHit("ewm-main-service", "/events/1", "192.163.0.1",
+            "2022-09-06 11:00:23");
+
+    private final InputEndpointHit otherHit = new InputEndpointHit("ewm-main-service", "/events/2", "192.163.0.2",
+            "2022-09-06 11:00:24");
+    @TempDir
+    Path spoolDirectory;
+    private final List<HitSpool> spools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sender.shutdown();
+        spools.forEach(HitSpool::close);
+    }
+
+    @Test
+    void send_WhenAsyncIsDisabled_ThenSaveHitImmediately() {
+        sender = new StatsHitSender(statsClient, null, meterRegistry, false, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+
+        sender.send(hit);
+
+        verify(statsClient, times(1)).saveEndpointRequest(hit);
+        verifyNoMoreInteractions(statsClient);
+    }
+
+    @Test
+    void flush_WhenHitsAreQueued_ThenSendThemInBatches() throws InterruptedException {
+        sender = new StatsHitSender(statsClient, null, meterRegistry, true, 10, 2, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+
+        sender.send(hit);
+        sender.send(hit);
+        sender.send(hit);
+        sender.shutdown();
+
+        verify(statsClient, times(2)).saveEndpointRequests(batchCaptor.capture());
+        assertThat(batchCaptor.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(meterRegistry.get("stats.client.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void send_WhenQueueIsFullAndPolicyIsDrop_ThenCountDroppedHit() {
+        sender = new StatsHitSender(statsClient, null, meterRegistry, true, 2, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+
+        sender.send(hit);
+        sender.send(hit);
+        sender.send(hit);
+
+        assertThat(meterRegistry.get("stats.client.hits.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stats.client.queue.size").gauge().value()).isEqualTo(2);
+        verifyNoInteractions(statsClient);
+    }
+
+    @Test
+    void flush_WhenServerFails_ThenCountFailedHits() {
+        sender = new StatsHitSender(statsClient, null, meterRegistry, true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.BLOCK);
+        doThrow(new DataRecordException("Server is down")).when(statsClient).saveEndpointRequests(anyList());
+
+        sender.send(hit);
+        sender.flush();
+
+        assertThat(meterRegistry.get("stats.client.hits.failed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stats.client.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void flush_WhenRunFails_ThenKeepFlushingOnSchedule() {
+        HitSpool spool = mock(HitSpool.class);
+        when(spool.peek(anyInt())).thenThrow(new IllegalStateException("Spool is corrupted")).thenReturn(List.of());
+        sender = new StatsHitSender(statsClient, spool, meterRegistry, true, 10, 10, 10,
+                StatsHitSender.OverflowPolicy.DROP);
+
+        sender.send(hit);
+
+        verify(statsClient, timeout(5_000)).saveEndpointRequests(List.of(hit));
+    }
+
+    @Test
+    void flush_WhenSpoolFails_ThenCountFailedHitsAndSendNextBatch() throws IOException {
+        HitSpool spool = mock(HitSpool.class);
+        when(spool.peek(anyInt())).thenReturn(List.of());
+        when(spool.append(anyList())).thenThrow(new UncheckedIOException(new IOException("No space left on device")));
+        sender = new StatsHitSender(statsClient, spool, meterRegistry, true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+        doThrow(new ResourceAccessException("Connection refused"))
+                .doNothing()
+                .when(statsClient).saveEndpointRequests(anyList());
+
+        sender.send(hit);
+        sender.flush();
+        sender.send(otherHit);
+        sender.flush();
+
+        assertThat(meterRegistry.get("stats.client.hits.failed").counter().count()).isEqualTo(1);
+        verify(statsClient).saveEndpointRequests(List.of(otherHit));
+    }
+
+    @Test
+    void flush_WhenServerIsUnavailable_ThenSpoolHitsAndReplayThemInOrderAfterRecovery() throws IOException {
+        HitSpool spool = spool();
+        sender = new StatsHitSender(statsClient, spool, meterRegistry, true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+        doThrow(new ResourceAccessException("Connection refused"))
+                .doNothing()
+                .when(statsClient).saveEndpointRequests(anyList());
+
+        sender.send(hit);
+        sender.flush();
+        assertThat(spool.isEmpty()).isFalse();
+
+        sender.send(otherHit);
+        sender.flush();
+
+        verify(statsClient, times(3)).saveEndpointRequests(batchCaptor.capture());
+        assertThat(batchCaptor.getAllValues()).containsExactly(List.of(hit), List.of(hit), List.of(otherHit));
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(meterRegistry.get("stats.client.hits.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void flush_WhenSenderIsKilledMidFlush_ThenNewSenderReplaysSpooledHits() throws IOException,
+            InterruptedException {
+        HitSpool spool = spool();
+        sender = new StatsHitSender(statsClient, spool, meterRegistry, true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+        doThrow(new ResourceAccessException("Read timed out")).when(statsClient).saveEndpointRequests(anyList());
+        sender.send(hit);
+        sender.send(otherHit);
+        sender.flush();
+        sender.shutdown();
+        // the mapped pages of a killed process still reach the file, closing only releases the mapping
+        spool.close();
+        HitSpoolFiles.appendTornRecord(spoolDirectory);
+
+        StatsClient restartedClient = mock(StatsClient.class);
+        sender = new StatsHitSender(restartedClient, spool(), new SimpleMeterRegistry(), true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+        sender.flush();
+
+        verify(restartedClient, times(1)).saveEndpointRequests(List.of(hit, otherHit));
+    }
+
+    @Test
+    void flush_WhenServerRejectsBatch_ThenDoNotSpoolIt() throws IOException {
+        HitSpool spool = spool();
+        sender = new StatsHitSender(statsClient, spool, meterRegistry, true, 10, 10, 60_000,
+                StatsHitSender.OverflowPolicy.DROP);
+        doThrow(new DataRecordException("Bad request", new HttpClientErrorException(HttpStatus.BAD_REQUEST)))
+                .when(statsClient).saveEndpointRequests(anyList());
+
+        sender.send(hit);
+        sender.flush();
+
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(meterRegistry.get("stats.client.hits.failed").counter().count()).isEqualTo(1);
+    }
+
+    private HitSpool spool() throws IOException {
+        HitSpool spool = new HitSpool(spoolDirectory, 64 * 1024, 4);
+        spools.add(spool);
+        return spool;
+    }
+}
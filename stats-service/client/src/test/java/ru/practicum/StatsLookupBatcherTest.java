@@ -0,0 +1,113 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.exception.DataRetrievalException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsLookupBatcherTest {
+    @Mock
+    private StatsClient statsClient;
+    @Captor
+    private ArgumentCaptor<List<String>> urisCaptor;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(3);
+    private final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 0);
+    private final LocalDateTime end = LocalDateTime.of(2023, 2, 1, 10, 0);
+    private StatsLookupBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        batcher.shutdown();
+    }
+
+    @Test
+    void getStatistics_WhenLookupsArriveWithinWindow_ThenSendOneRequestAndSplitResults() throws Exception {
+        batcher = new StatsLookupBatcher(statsClient, meterRegistry, true, 200, 100, 1, 5_000);
+        when(statsClient.getStatistics(any(), any(), anyList(), eq(true))).thenReturn(List.of(
+                new EndpointStats("ewm-main-service", "/events/1", 5),
+                new EndpointStats("ewm-main-service", "/events/2", 3)));
+
+        Future<List<EndpointStats>> first = callers.submit(() -> batcher.getStatistics(start.plusDays(1), end,
+                List.of("/events/1"), true));
+        Future<List<EndpointStats>> second = callers.submit(() -> batcher.getStatistics(start, end.minusDays(1),
+                List.of("/events/2"), true));
+        Future<List<EndpointStats>> third = callers.submit(() -> batcher.getStatistics(start, end,
+                List.of("/events/1", "/events/3"), true));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).extracting(EndpointStats::getUri).containsExactly("/events/1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(EndpointStats::getUri).containsExactly("/events/2");
+        assertThat(third.get(5, TimeUnit.SECONDS)).extracting(EndpointStats::getUri).containsExactly("/events/1");
+        verify(statsClient, times(1)).getStatistics(eq(start), eq(end), urisCaptor.capture(), eq(true));
+        assertThat(urisCaptor.getValue()).containsExactlyInAnyOrder("/events/1", "/events/2", "/events/3");
+        assertThat(meterRegistry.counter("stats.client.lookups.requests").count()).isEqualTo(1);
+    }
+
+    @Test
+    void flush_WhenLookupsExceedMaxUris_ThenSplitThemIntoSeveralRequests() throws Exception {
+        batcher = new StatsLookupBatcher(statsClient, meterRegistry, true, 200, 2, 1, 5_000);
+        when(statsClient.getStatistics(any(), any(), anyList(), eq(true))).thenReturn(List.of());
+
+        Future<List<EndpointStats>> first = callers.submit(() -> batcher.getStatistics(start, end,
+                List.of("/events/1", "/events/2"), true));
+        Future<List<EndpointStats>> second = callers.submit(() -> batcher.getStatistics(start, end,
+                List.of("/events/3"), true));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        verify(statsClient, times(2)).getStatistics(eq(start), eq(end), anyList(), eq(true));
+    }
+
+    @Test
+    void getStatistics_WhenStatsServerFails_ThenRethrowToCaller() {
+        batcher = new StatsLookupBatcher(statsClient, meterRegistry, true, 1, 100, 1, 5_000);
+        when(statsClient.getStatistics(any(), any(), anyList(), eq(true)))
+                .thenThrow(new DataRetrievalException("stats server is down"));
+
+        assertThatThrownBy(() -> batcher.getStatistics(start, end, List.of("/events/1"), true))
+                .isInstanceOf(DataRetrievalException.class)
+                .hasMessage("stats server is down");
+    }
+
+    @Test
+    void getStatistics_WhenStatsServerDoesNotAnswerInTime_ThenThrowDataRetrievalException() {
+        batcher = new StatsLookupBatcher(statsClient, meterRegistry, true, 1, 100, 1, 100);
+        when(statsClient.getStatistics(any(), any(), anyList(), eq(true))).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return List.of();
+        });
+
+        assertThatThrownBy(() -> batcher.getStatistics(start, end, List.of("/events/1"), true))
+                .isInstanceOf(DataRetrievalException.class)
+                .hasMessage("Timed out waiting for statistics");
+    }
+
+    @Test
+    void getStatistics_WhenBatchingIsDisabled_ThenCallStatsClientDirectly() {
+        batcher = new StatsLookupBatcher(statsClient, meterRegistry, false, 200, 100, 1, 5_000);
+        when(statsClient.getStatistics(start, end, List.of("/events/1"), true)).thenReturn(List.of());
+
+        assertThat(batcher.getStatistics(start, end, List.of("/events/1"), true)).isEmpty();
+        assertThat(meterRegistry.counter("stats.client.lookups").count()).isZero();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.spool;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Damages spool files the way a crash would.
+ */
+public final class HitSpoolFiles {
+    private HitSpoolFiles() {
+    }
+
+    /**
+     * Writes the checksum and half the payload of a record after the last one of the newest segment, leaving its
+     * length unwritten, as a process killed in the middle of an append would.
+     */
+    public static void appendTornRecord(Path directory) throws IOException {
+        Path newest;
+        try (Stream<Path> files = Files.list(directory)) {
+            newest = files.max(Comparator.naturalOrder()).orElseThrow();
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+            long position = 8;
+            file.seek(position);
+            for (int length = file.readInt(); length > 0; length = file.readInt()) {
+                position += 8 + length;
+                file.seek(position);
+            }
+
+            file.seek(position + 4);
+            file.writeInt(0x1234abcd);
+            file.write(new byte[]{0, 16, '/', 'e', 'v', 'e', 'n', 't', 's'});
+        }
+    }
+}
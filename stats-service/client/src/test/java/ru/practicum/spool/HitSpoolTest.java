@@ -0,0 +1,142 @@
+package ru.practicum.spool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.InputEndpointHit;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSpoolTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    @TempDir
+    Path directory;
+    private final List<HitSpool> spools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        spools.forEach(HitSpool::close);
+    }
+
+    @Test
+    void peek_WhenHitsAreAcknowledged_ThenReturnRemainingHitsInOrder() throws IOException {
+        HitSpool spool = spool(4);
+        List<InputEndpointHit> hits = hits(0, 5);
+
+        spool.append(hits);
+
+        assertThat(spool.peek(3)).containsExactlyElementsOf(hits.subList(0, 3));
+        spool.acknowledge(3);
+        assertThat(spool.peek(10)).containsExactlyElementsOf(hits.subList(3, 5));
+        spool.acknowledge(2);
+        assertThat(spool.isEmpty()).isTrue();
+        assertThat(spool.peek(10)).isEmpty();
+    }
+
+    @Test
+    void peek_WhenSenderWasKilledBeforeAcknowledge_ThenReplayUnacknowledgedHits() throws IOException {
+        HitSpool spool = spool(4);
+        List<InputEndpointHit> hits = hits(0, 6);
+        spool.append(hits);
+        spool.acknowledge(spool.peek(2).size());
+        spool.peek(2);
+        // the mapped pages of a killed process still reach the file, closing only releases the mapping
+        spool.close();
+        HitSpoolFiles.appendTornRecord(directory);
+
+        HitSpool recovered = spool(4);
+        List<InputEndpointHit> more = hits(6, 7);
+        recovered.append(more);
+        recovered.close();
+
+        assertThat(spool(4).peek(10)).containsExactlyElementsOf(hits(2, 7));
+    }
+
+    @Test
+    void peek_WhenLastRecordIsCorrupted_ThenSkipItAndKeepAppending() throws IOException {
+        HitSpool spool = spool(4);
+        List<InputEndpointHit> hits = hits(0, 3);
+        spool.append(hits);
+        spool.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(lastRecordPayloadOffset(hits));
+            file.write(0x7f);
+        }
+
+        HitSpool recovered = spool(4);
+        List<InputEndpointHit> more = hits(3, 4);
+        recovered.append(more);
+
+        assertThat(recovered.peek(10)).containsExactly(hits.get(0), hits.get(1), more.get(0));
+    }
+
+    @Test
+    void append_WhenHitCannotBeEncoded_ThenSkipIt() throws IOException {
+        HitSpool spool = spool(4);
+        InputEndpointHit withoutIp = new InputEndpointHit("ewm-main-service", "/events/1", null,
+                "2022-09-06 11:00:23");
+        InputEndpointHit tooLong = new InputEndpointHit("ewm-main-service", "/" + "e".repeat(70_000), "192.163.0.1",
+                "2022-09-06 11:00:23");
+        List<InputEndpointHit> hits = hits(0, 2);
+
+        int dropped = spool.append(List.of(hits.get(0), withoutIp, tooLong, hits.get(1)));
+
+        assertThat(dropped).isEqualTo(2);
+        assertThat(spool.peek(10)).containsExactlyElementsOf(hits);
+    }
+
+    @Test
+    void append_WhenDiskLimitIsReached_ThenDropOldestSegment() throws IOException {
+        HitSpool spool = spool(2);
+        List<InputEndpointHit> hits = hits(0, 5000);
+
+        int dropped = spool.append(hits);
+
+        assertThat(dropped).isPositive();
+        assertThat(spool.segmentCount()).isEqualTo(2);
+        assertThat(segments()).hasSize(2);
+        List<InputEndpointHit> remaining = spool.peek(1);
+        assertThat(remaining).containsExactly(hits.get(dropped));
+    }
+
+    private HitSpool spool(int maxSegments) throws IOException {
+        HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, maxSegments);
+        spools.add(spool);
+        return spool;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static int lastRecordPayloadOffset(List<InputEndpointHit> hits) {
+        int offset = 8;
+        for (int i = 0; i < hits.size() - 1; i++) {
+            offset += 8 + encodedSize(hits.get(i));
+        }
+        return offset + 8;
+    }
+
+    private static int encodedSize(InputEndpointHit hit) {
+        return 8 + hit.getApp().length() + hit.getUri().length() + hit.getIp().length() + hit.getTimestamp().length();
+    }
+
+    private static List<InputEndpointHit> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new InputEndpointHit("ewm-main-service", "/events/" + i, "192.163.0.1",
+                        "2022-09-06 11:00:23"))
+                .collect(Collectors.toList());
+    }
+}
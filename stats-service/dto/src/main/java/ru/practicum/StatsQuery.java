@@ -0,0 +1,26 @@
+package ru.practicum;
+
+import lombok.*;
+
+import javax.validation.constraints.NotBlank;
+import java.util.List;
+
+/**
+ * Body of POST /stats/query, the same search as GET /stats for uri lists too long for a query string.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class StatsQuery {
+    @NotBlank
+    private String start;
+    @NotBlank
+    private String end;
+    private List<String> uris;
+    private boolean unique;
+    private boolean approximate;
+    private UriMatch match = UriMatch.PREFIX;
+}
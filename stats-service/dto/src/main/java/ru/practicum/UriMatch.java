@@ -0,0 +1,15 @@
+package ru.practicum;
+
+/**
+ * How requested uris are matched against recorded ones when getting statistics.
+ */
+public enum UriMatch {
+    /**
+     * Recorded uri starts with the requested one, ignoring case: "/events" matches "/events/1".
+     */
+    PREFIX,
+    /**
+     * Recorded uri is equal to the requested one.
+     */
+    EXACT
+}
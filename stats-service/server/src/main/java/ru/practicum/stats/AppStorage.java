@@ -0,0 +1,10 @@
+package ru.practicum.stats;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.stats.model.App;
+
+import java.util.Optional;
+
+public interface AppStorage extends JpaRepository<App, Integer> {
+    Optional<App> findByName(String name);
+}
@@ -0,0 +1,64 @@
+package ru.practicum.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.Uri;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Interns app names and uris into their dictionary tables, so every hit row stores only two integer ids.
+ */
+@Component
+@Slf4j
+public class HitDictionary {
+    private final AppStorage appStorage;
+    private final UriStorage uriStorage;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, App> apps = new ConcurrentHashMap<>();
+    private final Map<String, Uri> uris = new ConcurrentHashMap<>();
+
+    public HitDictionary(AppStorage appStorage, UriStorage uriStorage, PlatformTransactionManager transactionManager) {
+        this.appStorage = appStorage;
+        this.uriStorage = uriStorage;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public App app(String name) {
+        return intern(apps, name, appStorage::findByName, () -> appStorage.saveAndFlush(new App(null, name)));
+    }
+
+    public Uri uri(String path) {
+        return intern(uris, path, uriStorage::findByPath, () -> uriStorage.saveAndFlush(new Uri(null, path)));
+    }
+
+    private <T> T intern(Map<String, T> cache, String key, Function<String, Optional<T>> finder,
+                         Supplier<T> creator) {
+        T cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        T entry = finder.apply(key).orElseGet(() -> {
+            try {
+                // committed separately, so a concurrent insert of the same key doesn't roll back the caller
+                return newTransaction.execute(status -> creator.get());
+            } catch (DataIntegrityViolationException e) {
+                log.info("Dictionary entry {} was created concurrently", key);
+                return finder.apply(key).orElseThrow(() -> e);
+            }
+        });
+        cache.put(key, entry);
+        return entry;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.model.EndpointHit;
+import ru.practicum.stats.model.HourlyHits;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class HitRecorder {
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final StatsStorage statsStorage;
+    private final HourlyHitsStorage hourlyHitsStorage;
+    private final HitDictionary hitDictionary;
+    private final TopHitsTracker topHitsTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final double sketchRelativeError;
+
+    public HitRecorder(StatsStorage statsStorage, HourlyHitsStorage hourlyHitsStorage, HitDictionary hitDictionary,
+                       TopHitsTracker topHitsTracker, PlatformTransactionManager transactionManager,
+                       @Value("${stats.hll.relative-error}") double sketchRelativeError) {
+        this.statsStorage = statsStorage;
+        this.hourlyHitsStorage = hourlyHitsStorage;
+        this.hitDictionary = hitDictionary;
+        this.topHitsTracker = topHitsTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sketchRelativeError = sketchRelativeError;
+    }
+
+    public List<EndpointHit> record(List<EndpointHit> endpointHits) {
+        for (EndpointHit endpointHit : endpointHits) {
+            endpointHit.setApp(hitDictionary.app(endpointHit.getApp().getName()));
+            endpointHit.setUri(hitDictionary.uri(endpointHit.getUri().getPath()));
+        }
+
+        List<EndpointHit> saved = saveWithRetries(endpointHits);
+        topHitsTracker.record(endpointHits);
+        return saved;
+    }
+
+    /**
+     * A batch spanning several hours can lose the race for a different new hourly row on each attempt, so conflicts
+     * are retried a bounded number of times. Rows that already exist are locked, so a retry updates them instead.
+     */
+    private List<EndpointHit> saveWithRetries(List<EndpointHit> endpointHits) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> saveWithHourlyHits(endpointHits));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("Hourly hits conflict persisted after {} attempts, {} hits not saved", attempt,
+                            endpointHits.size());
+                    throw e;
+                }
+                log.warn("Hourly hits conflict on attempt {}, retrying: {}", attempt, e.getMessage());
+            }
+        }
+    }
+
+    private List<EndpointHit> saveWithHourlyHits(List<EndpointHit> endpointHits) {
+        List<EndpointHit> saved = statsStorage.saveAll(endpointHits);
+        Map<HourKey, List<String>> ipsByHour = endpointHits.stream()
+                .collect(Collectors.groupingBy(HourKey::of,
+                        Collectors.mapping(EndpointHit::getIp, Collectors.toList())));
+
+        for (Map.Entry<HourKey, List<String>> entry : ipsByHour.entrySet()) {
+            HourKey key = entry.getKey();
+            Optional<HourlyHits> existing = hourlyHitsStorage.findByAppAndUriAndHourStart(key.getApp(), key.getUri(),
+                    key.getHourStart());
+            HourlyHits hourlyHits = existing.orElseGet(() -> new HourlyHits(null, key.getApp(), key.getUri(),
+                    key.getHourStart(), 0, null));
+            HyperLogLog sketch = (hourlyHits.getIpSketch() == null)
+                    ? HyperLogLog.withRelativeError(sketchRelativeError)
+                    : HyperLogLog.fromBytes(hourlyHits.getIpSketch());
+
+            entry.getValue().forEach(sketch::offer);
+            hourlyHits.setHits(hourlyHits.getHits() + entry.getValue().size());
+            hourlyHits.setIpSketch(sketch.toBytes());
+
+            if (existing.isEmpty()) {
+                hourlyHitsStorage.saveAndFlush(hourlyHits);
+            }
+        }
+
+        return saved;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class HourKey {
+        private final String app;
+        private final String uri;
+        private final LocalDateTime hourStart;
+
+        private static HourKey of(EndpointHit endpointHit) {
+            return new HourKey(endpointHit.getApp().getName(), endpointHit.getUri().getPath(),
+                    endpointHit.getTimeStamp().truncatedTo(ChronoUnit.HOURS));
+        }
+    }
+}
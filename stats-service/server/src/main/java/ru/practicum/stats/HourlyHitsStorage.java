@@ -0,0 +1,14 @@
+package ru.practicum.stats;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import ru.practicum.stats.model.HourlyHits;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface HourlyHitsStorage extends JpaRepository<HourlyHits, Long>, HourlyHitsStorageCustom {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<HourlyHits> findByAppAndUriAndHourStart(String app, String uri, LocalDateTime hourStart);
+}
@@ -0,0 +1,21 @@
+package ru.practicum.stats;
+
+import com.querydsl.core.types.Predicate;
+import ru.practicum.EndpointStats;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface HourlyHitsStorageCustom {
+    List<EndpointStats> getStats(Predicate predicate);
+
+    Map<EndpointStats, HyperLogLog> getIpSketches(Predicate predicate);
+
+    /**
+     * Ascending starts of the matching hours that have a row without an ip sketch, such as rows backfilled from
+     * hits saved before sketches were kept.
+     */
+    List<LocalDateTime> getHoursWithoutIpSketch(Predicate predicate);
+}
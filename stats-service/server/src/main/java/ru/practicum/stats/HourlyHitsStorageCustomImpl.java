@@ -0,0 +1,72 @@
+package ru.practicum.stats;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import ru.practicum.EndpointStats;
+import ru.practicum.stats.model.QHourlyHits;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class HourlyHitsStorageCustomImpl implements HourlyHitsStorageCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<EndpointStats> getStats(Predicate predicate) {
+        QHourlyHits hourlyHits = QHourlyHits.hourlyHits;
+        NumberExpression<Long> hits = hourlyHits.hits.sum();
+
+        List<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(hourlyHits.app, hourlyHits.uri, hits)
+                .from(hourlyHits)
+                .where(predicate)
+                .groupBy(hourlyHits.app, hourlyHits.uri)
+                .orderBy(hits.desc())
+                .fetch();
+
+        return rows.stream()
+                .map(row -> new EndpointStats(row.get(hourlyHits.app), row.get(hourlyHits.uri),
+                        row.get(hits).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<EndpointStats, HyperLogLog> getIpSketches(Predicate predicate) {
+        QHourlyHits hourlyHits = QHourlyHits.hourlyHits;
+        Map<EndpointStats, HyperLogLog> sketches = new HashMap<>();
+
+        try (Stream<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(hourlyHits.app, hourlyHits.uri, hourlyHits.ipSketch)
+                .from(hourlyHits)
+                .where(predicate, hourlyHits.ipSketch.isNotNull())
+                .stream()) {
+            rows.forEach(row -> sketches.merge(new EndpointStats(row.get(hourlyHits.app), row.get(hourlyHits.uri), 0),
+                    HyperLogLog.fromBytes(row.get(hourlyHits.ipSketch)), HyperLogLog::merge));
+        }
+
+        return sketches;
+    }
+
+    @Override
+    public List<LocalDateTime> getHoursWithoutIpSketch(Predicate predicate) {
+        QHourlyHits hourlyHits = QHourlyHits.hourlyHits;
+
+        return new JPAQuery<LocalDateTime>(entityManager)
+                .select(hourlyHits.hourStart)
+                .distinct()
+                .from(hourlyHits)
+                .where(predicate, hourlyHits.ipSketch.isNull())
+                .orderBy(hourlyHits.hourStart.asc())
+                .fetch();
+    }
+}
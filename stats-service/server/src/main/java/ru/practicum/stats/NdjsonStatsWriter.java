@@ -0,0 +1,58 @@
+package ru.practicum.stats;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.EndpointStats;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes endpoints to the response as newline-delimited JSON. The response is only touched with the first row, so
+ * an error raised before it can still be reported as a regular error response.
+ */
+class NdjsonStatsWriter implements Consumer<EndpointStats> {
+    static final String CONTENT_TYPE = "application/x-ndjson";
+    private final ObjectMapper objectMapper;
+    private final HttpServletResponse response;
+    private JsonGenerator generator;
+    private int written;
+
+    NdjsonStatsWriter(ObjectMapper objectMapper, HttpServletResponse response) {
+        this.objectMapper = objectMapper;
+        this.response = response;
+    }
+
+    @Override
+    public void accept(EndpointStats endpointStats) {
+        try {
+            if (generator == null) {
+                open();
+            }
+            objectMapper.writeValue(generator, endpointStats);
+            generator.writeRaw('\n');
+            written++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int finish() throws IOException {
+        if (generator == null) {
+            open();
+        }
+        generator.flush();
+        return written;
+    }
+
+    private void open() throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        generator.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+        // rows are separated by the newlines written after each of them, not by Jackson's default space
+        generator.setRootValueSeparator(null);
+    }
+}
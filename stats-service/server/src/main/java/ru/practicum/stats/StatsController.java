@@ -1,15 +1,25 @@
 package ru.practicum.stats;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.StatsQuery;
+import ru.practicum.UriMatch;
+import ru.practicum.utils.Constants;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,20 +28,68 @@ import java.util.List;
 @Validated
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
     private static final String DEFAULT_UNIQUE_VALUE = "false";
+    private static final String DEFAULT_APPROXIMATE_VALUE = "false";
+    private static final String DEFAULT_MATCH_VALUE = "PREFIX";
+    private static final String DEFAULT_TOP_SIZE = "10";
+    private static final String DEFAULT_TOP_WINDOW = "1h";
 
     @PostMapping("/hit")
-    @ResponseStatus(HttpStatus.CREATED)
-    public void saveEndpointRequest(@Valid @RequestBody InputEndpointHit inputEndpointHit) {
+    public ResponseEntity<Void> saveEndpointRequest(@Valid @RequestBody InputEndpointHit inputEndpointHit) {
         log.info("Saving endpoint's request info: {}", inputEndpointHit);
-        statsService.saveEndpointHit(inputEndpointHit);
+        return savedStatus(statsService.saveEndpointHit(inputEndpointHit));
+    }
+
+    @PostMapping("/hit/batch")
+    public ResponseEntity<Void> saveEndpointRequests(@RequestBody @NotEmpty @Size(max = Constants.MAX_HIT_BATCH_SIZE)
+                                                     List<@Valid InputEndpointHit> inputEndpointHits) {
+        log.info("Saving {} endpoint's requests info", inputEndpointHits.size());
+        return savedStatus(statsService.saveEndpointHits(inputEndpointHits));
     }
 
     @GetMapping("/stats")
     public List<EndpointStats> getStats(@RequestParam @NotBlank String start, @NotBlank @RequestParam String end,
                                         @RequestParam(required = false) String[] uris,
-                                        @RequestParam(defaultValue = DEFAULT_UNIQUE_VALUE) boolean unique) {
+                                        @RequestParam(defaultValue = DEFAULT_UNIQUE_VALUE) boolean unique,
+                                        @RequestParam(defaultValue = DEFAULT_APPROXIMATE_VALUE) boolean approximate,
+                                        @RequestParam(defaultValue = DEFAULT_MATCH_VALUE) UriMatch match) {
         log.info("Getting statistics from {} to {}", start, end);
-        return statsService.getStats(start, end, uris, unique);
+        return statsService.getStats(start, end, uris, unique, approximate, match);
+    }
+
+    @GetMapping("/stats/top")
+    public List<EndpointStats> getTopStats(@RequestParam(defaultValue = DEFAULT_TOP_SIZE) int k,
+                                           @RequestParam(defaultValue = DEFAULT_TOP_WINDOW) String window) {
+        log.info("Getting top {} endpoints of {}", k, window);
+        return statsService.getTopStats(k, window);
+    }
+
+    @GetMapping("/stats/stream")
+    public void streamStats(@RequestParam @NotBlank String start, @NotBlank @RequestParam String end,
+                            @RequestParam(required = false) String[] uris,
+                            @RequestParam(defaultValue = DEFAULT_UNIQUE_VALUE) boolean unique,
+                            @RequestParam(defaultValue = DEFAULT_APPROXIMATE_VALUE) boolean approximate,
+                            @RequestParam(defaultValue = DEFAULT_MATCH_VALUE) UriMatch match,
+                            @RequestParam(required = false) @Positive Integer limit,
+                            HttpServletResponse response) throws IOException {
+        log.info("Streaming statistics from {} to {}", start, end);
+        NdjsonStatsWriter writer = new NdjsonStatsWriter(objectMapper, response);
+        statsService.streamStats(start, end, uris, unique, approximate, match,
+                limit == null ? Integer.MAX_VALUE : limit, writer);
+        log.info("Streamed statistics for {} endpoints", writer.finish());
+    }
+
+    @PostMapping("/stats/query")
+    public List<EndpointStats> getStats(@Valid @RequestBody StatsQuery query) {
+        log.info("Getting statistics from {} to {} for {} uris", query.getStart(), query.getEnd(),
+                query.getUris() == null ? 0 : query.getUris().size());
+        String[] uris = query.getUris() == null ? null : query.getUris().toArray(String[]::new);
+        return statsService.getStats(query.getStart(), query.getEnd(), uris, query.isUnique(), query.isApproximate(),
+                query.getMatch() == null ? UriMatch.PREFIX : query.getMatch());
+    }
+
+    private ResponseEntity<Void> savedStatus(boolean queued) {
+        return ResponseEntity.status(queued ? HttpStatus.ACCEPTED : HttpStatus.CREATED).build();
     }
 }
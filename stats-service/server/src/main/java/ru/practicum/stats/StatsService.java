@@ -2,11 +2,32 @@ package ru.practicum.stats;
 
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.UriMatch;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
-    void saveEndpointHit(InputEndpointHit inputEndpointHit);
+    /**
+     * @return {@code true} if the hit was accepted for a deferred write
+     */
+    boolean saveEndpointHit(InputEndpointHit inputEndpointHit);
 
-    List<EndpointStats> getStats(String start, String end, String[] uris, boolean unique);
+    boolean saveEndpointHits(List<InputEndpointHit> inputEndpointHits);
+
+    List<EndpointStats> getStats(String start, String end, String[] uris, boolean unique, boolean approximate,
+                                 UriMatch match);
+
+    /**
+     * Returns up to {@code k} most hit endpoints of the last {@code window}, with estimated hits.
+     */
+    List<EndpointStats> getTopStats(int k, String window);
+
+    /**
+     * Passes at most {@code limit} endpoints of the same search to the consumer, most hit first. Hits and exact
+     * unique ips are read from a database cursor; approximate unique ips and more than 1000 exact uris are gathered
+     * in memory first, so their {@code limit} may not exceed {@code stats.stream.max-buffered-endpoints}.
+     */
+    void streamStats(String start, String end, String[] uris, boolean unique, boolean approximate, UriMatch match,
+                     int limit, Consumer<EndpointStats> consumer);
 }
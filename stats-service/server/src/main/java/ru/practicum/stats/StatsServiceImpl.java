@@ -1,105 +1,354 @@
 package ru.practicum.stats;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringPath;
 import com.querydsl.core.util.ArrayUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.UriMatch;
+import ru.practicum.stats.ingest.HitIngestBuffer;
 import ru.practicum.stats.model.EndpointHit;
 import ru.practicum.stats.model.EndpointHitMapper;
 import ru.practicum.stats.model.QEndpointHit;
+import ru.practicum.stats.model.QHourlyHits;
+import ru.practicum.stats.sketch.HyperLogLog;
 import ru.practicum.utils.Constants;
 
 import javax.validation.ValidationException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class StatsServiceImpl implements StatsService {
     private final StatsStorage statsStorage;
+    private final HourlyHitsStorage hourlyHitsStorage;
+    private final UriStorage uriStorage;
+    private final TopHitsTracker topHitsTracker;
+    private final HitIngestBuffer hitIngestBuffer;
+    private final double sketchRelativeError;
+    private final int maxBufferedEndpoints;
+    private static final int URI_CHUNK_SIZE = 1000;
+
+    public StatsServiceImpl(StatsStorage statsStorage, HourlyHitsStorage hourlyHitsStorage, UriStorage uriStorage,
+                            TopHitsTracker topHitsTracker, HitIngestBuffer hitIngestBuffer,
+                            @Value("${stats.hll.relative-error}") double sketchRelativeError,
+                            @Value("${stats.stream.max-buffered-endpoints}") int maxBufferedEndpoints) {
+        this.statsStorage = statsStorage;
+        this.hourlyHitsStorage = hourlyHitsStorage;
+        this.uriStorage = uriStorage;
+        this.topHitsTracker = topHitsTracker;
+        this.hitIngestBuffer = hitIngestBuffer;
+        this.sketchRelativeError = sketchRelativeError;
+        this.maxBufferedEndpoints = maxBufferedEndpoints;
+    }
 
     @Override
-    public void saveEndpointHit(InputEndpointHit inputEndpointHit) {
-        EndpointHit endpointHit = statsStorage.save(EndpointHitMapper.toEndpointHit(inputEndpointHit));
-        log.info("Saved endpoint's request info with id {}", endpointHit.getId());
+    public boolean saveEndpointHit(InputEndpointHit inputEndpointHit) {
+        EndpointHit endpointHit = EndpointHitMapper.toEndpointHit(inputEndpointHit);
+        boolean queued = hitIngestBuffer.accept(List.of(endpointHit));
+        log.info("{} endpoint's request info", queued ? "Queued" : "Saved");
+        return queued;
     }
 
     @Override
-    public List<EndpointStats> getStats(String start, String end, String[] uris, boolean unique) {
+    public boolean saveEndpointHits(List<InputEndpointHit> inputEndpointHits) {
+        List<EndpointHit> endpointHits = inputEndpointHits.stream()
+                .map(EndpointHitMapper::toEndpointHit)
+                .collect(Collectors.toList());
+        boolean queued = hitIngestBuffer.accept(endpointHits);
+        log.info("{} {} endpoint's requests info", queued ? "Queued" : "Saved", endpointHits.size());
+        return queued;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EndpointStats> getStats(String start, String end, String[] uris, boolean unique, boolean approximate,
+                                        UriMatch match) {
         LocalDateTime from = decodeAndParseDate(start);
         LocalDateTime to = decodeAndParseDate(end);
         checkSearchInterval(from, to);
-        BooleanExpression predicate = QEndpointHit.endpointHit.timeStamp.between(from, to);
+        List<UriFilter> uriFilters = uriFilters(uris, match);
 
-        if (!ArrayUtils.isEmpty(uris)) {
-            BooleanBuilder builder = new BooleanBuilder();
-            builder.and(QEndpointHit.endpointHit.uri.startsWithIgnoreCase(uris[0]));
+        if (uriFilters.isEmpty()) {
+            log.info("None of {} requested uris were hit", uris.length);
+            return List.of();
+        }
 
-            if (uris.length > 1) {
-                for (int i = 1; i < uris.length; i++) {
-                    builder.or(QEndpointHit.endpointHit.uri.startsWithIgnoreCase(uris[i]));
-                }
-            }
+        List<EndpointStats> stats = new ArrayList<>();
+        for (UriFilter uriFilter : uriFilters) {
+            stats.addAll(getStats(from, to, unique, approximate, uriFilter));
+        }
+        if (uriFilters.size() > 1) {
+            // chunks hold disjoint uris, so their endpoints never repeat and only the order has to be restored
+            stats.sort(Comparator.comparingInt(EndpointStats::getHits).reversed());
+        }
+
+        log.info("Got statistics for {} endpoints", stats.size());
+        return stats;
+    }
+
+    private List<EndpointStats> getStats(LocalDateTime from, LocalDateTime to, boolean unique, boolean approximate,
+                                         UriFilter uriFilter) {
+        LocalDateTime fullHoursStart = firstFullHour(from);
+        LocalDateTime fullHoursEnd = to.truncatedTo(ChronoUnit.HOURS);
+
+        List<EndpointStats> stats;
+        if (countedFromRawHits(from, to, unique, approximate)) {
+            BooleanExpression period = QEndpointHit.endpointHit.timeStamp.between(from, to);
+            stats = statsStorage.getStats(period.and(uriFilter.onHits), unique);
+        } else {
+            Predicate fullHours = QHourlyHits.hourlyHits.hourStart.goe(fullHoursStart)
+                    .and(QHourlyHits.hourlyHits.hourStart.lt(fullHoursEnd))
+                    .and(uriFilter.onHourlyHits);
+            Predicate edges = QEndpointHit.endpointHit.timeStamp.goe(from)
+                    .and(QEndpointHit.endpointHit.timeStamp.lt(fullHoursStart))
+                    .or(QEndpointHit.endpointHit.timeStamp.goe(fullHoursEnd)
+                            .and(QEndpointHit.endpointHit.timeStamp.loe(to)))
+                    .and(uriFilter.onHits);
+
+            stats = (unique) ? estimateUniqueStats(fullHours, edges, uriFilter.onHits) : sumStats(fullHours, edges);
+        }
 
-            predicate = predicate.and(builder.getValue());
+        return stats;
+    }
+
+    @Override
+    public List<EndpointStats> getTopStats(int k, String window) {
+        Duration maxWindow = topHitsTracker.getMaxWindow();
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            duration = null;
         }
 
-        Iterable<EndpointHit> endpointHits = statsStorage.findAll(predicate);
+        if (duration == null || duration.isNegative() || duration.isZero() || duration.compareTo(maxWindow) > 0) {
+            log.warn("Attempt to get top endpoints of {}", window);
+            throw new ValidationException(String.format(Constants.INCORRECT_TOP_WINDOW_MESSAGE, window,
+                    DurationStyle.SIMPLE.print(maxWindow)));
+        }
 
-        List<EndpointStats> stats = (unique) ? calcStatsWithoutRepeatings(endpointHits) : calcStatsWithRepeatings(endpointHits);
-        log.info("Got statistics for {} endpoints", stats.size());
+        if (k < 1 || k > topHitsTracker.getCapacity()) {
+            log.warn("Attempt to get top {} endpoints", k);
+            throw new ValidationException(String.format(Constants.INCORRECT_TOP_SIZE_MESSAGE, k,
+                    topHitsTracker.getCapacity()));
+        }
+
+        List<EndpointStats> stats = topHitsTracker.top(k, duration);
+        log.info("Got top {} endpoints of {}", stats.size(), window);
         return stats;
     }
 
-    private List<EndpointStats> calcStatsWithRepeatings(Iterable<EndpointHit> endpointHits) {
-        List<EndpointStats> endpointStatsList = new ArrayList<>();
-        Map<EndpointStats, Integer> stats = new HashMap<>();
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(String start, String end, String[] uris, boolean unique, boolean approximate,
+                            UriMatch match, int limit, Consumer<EndpointStats> consumer) {
+        LocalDateTime from = decodeAndParseDate(start);
+        LocalDateTime to = decodeAndParseDate(end);
+        checkSearchInterval(from, to);
+
+        boolean rawHits = countedFromRawHits(from, to, unique, approximate);
+        if (unique && !rawHits) {
+            // sketches can't be merged by the database, so approximate unique ips are estimated in memory
+            checkBufferedLimit(limit);
+            getStats(start, end, uris, unique, approximate, match).stream().limit(limit).forEach(consumer);
+            return;
+        }
+
+        List<UriFilter> uriFilters = uriFilters(uris, match);
+        if (uriFilters.size() == 1) {
+            streamStats(from, to, unique, rawHits, uriFilters.get(0), limit, consumer);
+            return;
+        }
+
+        if (!uriFilters.isEmpty()) {
+            // chunks hold disjoint uris, so the top of their tops is the top of all of them
+            checkBufferedLimit(limit);
+            PriorityQueue<EndpointStats> top = new PriorityQueue<>(Comparator.comparingInt(EndpointStats::getHits));
+            for (UriFilter uriFilter : uriFilters) {
+                streamStats(from, to, unique, rawHits, uriFilter, limit, endpointStats -> {
+                    top.add(endpointStats);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                });
+            }
+            List<EndpointStats> stats = new ArrayList<>(top);
+            stats.sort(Comparator.comparingInt(EndpointStats::getHits).reversed());
+            stats.forEach(consumer);
+        }
+    }
+
+    private void streamStats(LocalDateTime from, LocalDateTime to, boolean unique, boolean rawHits,
+                             UriFilter uriFilter, int limit, Consumer<EndpointStats> consumer) {
+        if (rawHits) {
+            BooleanExpression period = QEndpointHit.endpointHit.timeStamp.between(from, to);
+            statsStorage.streamStats(period.and(uriFilter.onHits), unique, limit, consumer);
+        } else {
+            statsStorage.streamRolledUpStats(from, firstFullHour(from), to.truncatedTo(ChronoUnit.HOURS), to,
+                    uriFilter.uris, uriFilter.exact, limit, consumer);
+        }
+    }
+
+    /**
+     * Streams that can't be read from one cursor are gathered in memory first, so they have to be limited.
+     */
+    private void checkBufferedLimit(int limit) {
+        if (limit > maxBufferedEndpoints) {
+            log.warn("Attempt to stream {} endpoints gathered in memory", limit);
+            throw new ValidationException(String.format(Constants.INCORRECT_STREAM_LIMIT_MESSAGE,
+                    maxBufferedEndpoints));
+        }
+    }
+
+    /**
+     * Exact distinct ips can't be summed across hours, so they are always counted from raw hits, as are periods
+     * without a full hour.
+     */
+    private boolean countedFromRawHits(LocalDateTime from, LocalDateTime to, boolean unique, boolean approximate) {
+        return !firstFullHour(from).isBefore(to.truncatedTo(ChronoUnit.HOURS)) || (unique && !approximate);
+    }
 
-        for (EndpointHit endpointHit : endpointHits) {
-            EndpointStats endpointStats = EndpointHitMapper.toEndpointStats(endpointHit);
-            stats.put(endpointStats, stats.getOrDefault(endpointStats, 0) + 1);
+    private LocalDateTime firstFullHour(LocalDateTime from) {
+        LocalDateTime hourStart = from.truncatedTo(ChronoUnit.HOURS);
+        return hourStart.isBefore(from) ? hourStart.plusHours(1) : hourStart;
+    }
+
+    /**
+     * Uri filters to query one by one; none when no requested uri was hit. Exact uris are split into chunks, so that
+     * no query exceeds the bind parameter limit of the database.
+     */
+    private List<UriFilter> uriFilters(String[] uris, UriMatch match) {
+        if (ArrayUtils.isEmpty(uris)) {
+            return List.of(new UriFilter(null, null, null, false));
         }
 
-        for (Map.Entry<EndpointStats, Integer> entry : stats.entrySet()) {
-            entry.getKey().setHits(entry.getValue());
-            endpointStatsList.add(entry.getKey());
+        if (match == UriMatch.EXACT) {
+            // uris are resolved to ids through the unique index on uris.path, so raw hits are filtered by uri_id
+            List<UriFilter> uriFilters = new ArrayList<>();
+            for (List<String> chunk : chunks(new ArrayList<>(new HashSet<>(Arrays.asList(uris))),
+                    URI_CHUNK_SIZE)) {
+                List<Integer> uriIds = uriStorage.findIdsByPathIn(chunk);
+                if (!uriIds.isEmpty()) {
+                    uriFilters.add(new UriFilter(QEndpointHit.endpointHit.uri.id.in(uriIds),
+                            QHourlyHits.hourlyHits.uri.in(chunk), chunk, true));
+                }
+            }
+            return uriFilters;
+        }
+
+        return List.of(new UriFilter(startsWithAny(QEndpointHit.endpointHit.uri.path, uris),
+                startsWithAny(QHourlyHits.hourlyHits.uri, uris), Arrays.asList(uris), false));
+    }
+
+    private Predicate startsWithAny(StringPath uriPath, String[] uris) {
+        BooleanBuilder builder = new BooleanBuilder();
+        for (String uri : uris) {
+            builder.or(uriPath.startsWithIgnoreCase(uri));
         }
 
-        return sortByHits(endpointStatsList);
+        return builder.getValue();
     }
 
-    private List<EndpointStats> calcStatsWithoutRepeatings(Iterable<EndpointHit> endpointHits) {
-        List<EndpointStats> endpointStatsList = new ArrayList<>();
-        Map<EndpointStats, Set<String>> stats = new HashMap<>();
+    private static <T> List<List<T>> chunks(List<T> values, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += size) {
+            chunks.add(values.subList(i, Math.min(i + size, values.size())));
+        }
+        return chunks;
+    }
+
+    private List<EndpointStats> sumStats(Predicate fullHours, Predicate edges) {
+        Map<EndpointStats, Integer> hits = new HashMap<>();
+
+        for (EndpointStats endpointStats : hourlyHitsStorage.getStats(fullHours)) {
+            hits.merge(withoutHits(endpointStats), endpointStats.getHits(), Integer::sum);
+        }
+
+        for (EndpointStats endpointStats : statsStorage.getStats(edges, false)) {
+            hits.merge(withoutHits(endpointStats), endpointStats.getHits(), Integer::sum);
+        }
+
+        return sortByHits(hits);
+    }
 
-        for (EndpointHit endpointHit : endpointHits) {
-            EndpointStats endpointStats = EndpointHitMapper.toEndpointStats(endpointHit);
-            stats.computeIfAbsent(endpointStats, k -> new HashSet<>());
-            stats.get(endpointStats).add(endpointHit.getIp());
+    /**
+     * Hours with a row lacking a sketch are counted from their raw hits. Sketches of the other rows of such an hour
+     * are merged as well, which is harmless, as merging a set of ips twice doesn't change the estimate.
+     */
+    private List<EndpointStats> estimateUniqueStats(Predicate fullHours, Predicate edges, Predicate uriOnHits) {
+        Map<EndpointStats, HyperLogLog> sketches = hourlyHitsStorage.getIpSketches(fullHours);
+        BooleanBuilder rawHits = new BooleanBuilder(edges);
+        Predicate hoursWithoutSketch = hoursOf(hourlyHitsStorage.getHoursWithoutIpSketch(fullHours));
+        if (hoursWithoutSketch != null) {
+            rawHits.or(new BooleanBuilder(hoursWithoutSketch).and(uriOnHits));
         }
 
-        for (Map.Entry<EndpointStats, Set<String>> entry : stats.entrySet()) {
-            entry.getKey().setHits(entry.getValue().size());
-            endpointStatsList.add(entry.getKey());
+        int precision = HyperLogLog.withRelativeError(sketchRelativeError).getPrecision();
+        statsStorage.getIpSketches(rawHits, precision)
+                .forEach((endpoint, sketch) -> sketches.merge(endpoint, sketch, HyperLogLog::merge));
+
+        Map<EndpointStats, Integer> hits = new HashMap<>();
+        sketches.forEach((endpoint, sketch) -> hits.put(endpoint, (int) sketch.estimate()));
+        return sortByHits(hits);
+    }
+
+    /**
+     * Raw hits of the given ascending hours, consecutive hours joined into one range; {@code null} for no hours.
+     */
+    private Predicate hoursOf(List<LocalDateTime> hourStarts) {
+        BooleanBuilder builder = new BooleanBuilder();
+        int i = 0;
+        while (i < hourStarts.size()) {
+            LocalDateTime rangeStart = hourStarts.get(i);
+            LocalDateTime rangeEnd = rangeStart.plusHours(1);
+            while (++i < hourStarts.size() && hourStarts.get(i).equals(rangeEnd)) {
+                rangeEnd = rangeEnd.plusHours(1);
+            }
+            builder.or(QEndpointHit.endpointHit.timeStamp.goe(rangeStart)
+                    .and(QEndpointHit.endpointHit.timeStamp.lt(rangeEnd)));
         }
 
-        return sortByHits(endpointStatsList);
+        return builder.getValue();
     }
 
-    private List<EndpointStats> sortByHits(List<EndpointStats> notSortedList) {
-        return notSortedList.stream()
+    private EndpointStats withoutHits(EndpointStats endpointStats) {
+        return new EndpointStats(endpointStats.getApp(), endpointStats.getUri(), 0);
+    }
+
+    private List<EndpointStats> sortByHits(Map<EndpointStats, Integer> hits) {
+        return hits.entrySet().stream()
+                .map(entry -> new EndpointStats(entry.getKey().getApp(), entry.getKey().getUri(), entry.getValue()))
                 .sorted(Comparator.comparingInt(EndpointStats::getHits).reversed())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Uri conditions for raw and hourly hits and the uris they were made of, {@code null} when all uris are requested.
+     */
+    @RequiredArgsConstructor
+    private static class UriFilter {
+        private final Predicate onHits;
+        private final Predicate onHourlyHits;
+        private final List<String> uris;
+        private final boolean exact;
+    }
+
     private LocalDateTime decodeAndParseDate(String date) {
         String decodedDate = URLDecoder.decode(date, StandardCharsets.UTF_8);
         return LocalDateTime.parse(decodedDate, Constants.FORMATTER);
@@ -0,0 +1,36 @@
+package ru.practicum.stats;
+
+import com.querydsl.core.types.Predicate;
+import ru.practicum.EndpointStats;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface StatsStorageCustom {
+    List<EndpointStats> getStats(Predicate predicate, boolean unique);
+
+    /**
+     * Passes at most {@code limit} endpoints to the consumer in the order of hits, reading them with a cursor.
+     */
+    void streamStats(Predicate predicate, boolean unique, int limit, Consumer<EndpointStats> consumer);
+
+    /**
+     * Like {@link #streamStats} for hits, not unique ips, summing hourly rollups of the full hours from
+     * {@code fullHoursStart} to {@code fullHoursEnd} with raw hits of the partial hours around them; the database
+     * adds them up, so only the cursor is read here. {@code uris} are exact paths or prefixes, {@code null} for all.
+     */
+    void streamRolledUpStats(LocalDateTime from, LocalDateTime fullHoursStart, LocalDateTime fullHoursEnd,
+                             LocalDateTime to, Collection<String> uris, boolean exact, int limit,
+                             Consumer<EndpointStats> consumer);
+
+    Map<EndpointStats, HyperLogLog> getIpSketches(Predicate predicate, int precision);
+
+    /**
+     * Returns hits since the given time counted per endpoint and minute.
+     */
+    Map<LocalDateTime, List<EndpointStats>> getMinuteStats(LocalDateTime from);
+}
@@ -0,0 +1,230 @@
+package ru.practicum.stats;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.jpa.QueryHints;
+import ru.practicum.EndpointStats;
+import ru.practicum.stats.model.QApp;
+import ru.practicum.stats.model.QEndpointHit;
+import ru.practicum.stats.model.QUri;
+import ru.practicum.stats.sketch.HyperLogLog;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class StatsStorageCustomImpl implements StatsStorageCustom {
+    private static final int STREAM_BATCH_SIZE = 500;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<EndpointStats> getStats(Predicate predicate, boolean unique) {
+        QEndpointHit endpointHit = QEndpointHit.endpointHit;
+        NumberPath<Integer> appId = endpointHit.app.id;
+        NumberPath<Integer> uriId = endpointHit.uri.id;
+        NumberExpression<Long> hits = (unique) ? endpointHit.ip.countDistinct() : endpointHit.count();
+
+        // grouping by the integer ids is much cheaper than by strings, names are resolved afterwards
+        List<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(appId, uriId, hits)
+                .from(endpointHit)
+                .where(predicate)
+                .groupBy(appId, uriId)
+                .orderBy(hits.desc())
+                .fetch();
+
+        Map<Integer, String> appNames = appNames(rows.stream().map(row -> row.get(appId)));
+        Map<Integer, String> uriPaths = uriPaths(rows.stream().map(row -> row.get(uriId)));
+        return rows.stream()
+                .map(row -> new EndpointStats(appNames.get(row.get(appId)), uriPaths.get(row.get(uriId)),
+                        row.get(hits).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamStats(Predicate predicate, boolean unique, int limit, Consumer<EndpointStats> consumer) {
+        QEndpointHit endpointHit = QEndpointHit.endpointHit;
+        NumberPath<Integer> appId = endpointHit.app.id;
+        NumberPath<Integer> uriId = endpointHit.uri.id;
+        NumberExpression<Long> hits = (unique) ? endpointHit.ip.countDistinct() : endpointHit.count();
+        List<Tuple> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+
+        try (Stream<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(appId, uriId, hits)
+                .from(endpointHit)
+                .where(predicate)
+                .groupBy(appId, uriId)
+                .orderBy(hits.desc())
+                .limit(limit)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_BATCH_SIZE)
+                .stream()) {
+            Iterator<Tuple> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == STREAM_BATCH_SIZE || !iterator.hasNext()) {
+                    // names are resolved per batch, so memory stays bounded however many endpoints there are
+                    Map<Integer, String> appNames = appNames(batch.stream().map(row -> row.get(appId)));
+                    Map<Integer, String> uriPaths = uriPaths(batch.stream().map(row -> row.get(uriId)));
+                    batch.forEach(row -> consumer.accept(new EndpointStats(appNames.get(row.get(appId)),
+                            uriPaths.get(row.get(uriId)), row.get(hits).intValue())));
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void streamRolledUpStats(LocalDateTime from, LocalDateTime fullHoursStart, LocalDateTime fullHoursEnd,
+                                    LocalDateTime to, Collection<String> uris, boolean exact, int limit,
+                                    Consumer<EndpointStats> consumer) {
+        // JPQL has no union, so the hourly and raw sides are merged and grouped in native SQL
+        String sql = "select app, uri, sum(hits) as total from ("
+                + "select h.app as app, h.uri as uri, h.hits as hits from endpoint_hits_hourly h "
+                + "where h.hour_start >= :fullHoursStart and h.hour_start < :fullHoursEnd"
+                + uriCondition("h.uri", uris, exact) + " "
+                + "union all "
+                + "select a.name, u.path, count(*) from endpoint_hits e "
+                + "join apps a on a.id = e.app_id "
+                + "join uris u on u.id = e.uri_id "
+                + "where (e.time_stamp >= :from and e.time_stamp < :fullHoursStart "
+                + "or e.time_stamp >= :fullHoursEnd and e.time_stamp <= :to)"
+                + uriCondition("u.path", uris, exact) + " "
+                + "group by a.name, u.path"
+                + ") rolled_up group by app, uri order by total desc";
+
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("from", from)
+                .setParameter("fullHoursStart", fullHoursStart)
+                .setParameter("fullHoursEnd", fullHoursEnd)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_BATCH_SIZE);
+        if (uris != null && exact) {
+            query.setParameter("uris", uris);
+        } else if (uris != null) {
+            int i = 0;
+            for (String uri : uris) {
+                query.setParameter("uri" + i++, likePrefix(uri));
+            }
+        }
+
+        try (Stream<?> rows = query.getResultStream()) {
+            rows.map(Object[].class::cast)
+                    .forEach(row -> consumer.accept(new EndpointStats((String) row[0], (String) row[1],
+                            ((Number) row[2]).intValue())));
+        }
+    }
+
+    private static String uriCondition(String column, Collection<String> uris, boolean exact) {
+        if (uris == null) {
+            return "";
+        }
+        if (exact) {
+            return " and " + column + " in (:uris)";
+        }
+
+        // same condition as Querydsl's startsWithIgnoreCase
+        StringJoiner prefixes = new StringJoiner(" or ", " and (", ")");
+        for (int i = 0; i < uris.size(); i++) {
+            prefixes.add("lower(" + column + ") like :uri" + i + " escape '!'");
+        }
+        return prefixes.toString();
+    }
+
+    private static String likePrefix(String uri) {
+        return uri.toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+
+    @Override
+    public Map<EndpointStats, HyperLogLog> getIpSketches(Predicate predicate, int precision) {
+        QEndpointHit endpointHit = QEndpointHit.endpointHit;
+        NumberPath<Integer> appId = endpointHit.app.id;
+        NumberPath<Integer> uriId = endpointHit.uri.id;
+        Map<List<Integer>, HyperLogLog> sketches = new HashMap<>();
+
+        try (Stream<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(appId, uriId, endpointHit.ip)
+                .distinct()
+                .from(endpointHit)
+                .where(predicate)
+                .stream()) {
+            rows.forEach(row -> sketches.computeIfAbsent(List.of(row.get(appId), row.get(uriId)),
+                    key -> new HyperLogLog(precision)).offer(row.get(endpointHit.ip)));
+        }
+
+        Map<Integer, String> appNames = appNames(sketches.keySet().stream().map(key -> key.get(0)));
+        Map<Integer, String> uriPaths = uriPaths(sketches.keySet().stream().map(key -> key.get(1)));
+        Map<EndpointStats, HyperLogLog> result = new HashMap<>();
+        sketches.forEach((key, sketch) ->
+                result.put(new EndpointStats(appNames.get(key.get(0)), uriPaths.get(key.get(1)), 0), sketch));
+        return result;
+    }
+
+    @Override
+    public Map<LocalDateTime, List<EndpointStats>> getMinuteStats(LocalDateTime from) {
+        QEndpointHit endpointHit = QEndpointHit.endpointHit;
+        NumberPath<Integer> appId = endpointHit.app.id;
+        NumberPath<Integer> uriId = endpointHit.uri.id;
+        NumberExpression<Integer> year = endpointHit.timeStamp.year();
+        NumberExpression<Integer> month = endpointHit.timeStamp.month();
+        NumberExpression<Integer> day = endpointHit.timeStamp.dayOfMonth();
+        NumberExpression<Integer> hour = endpointHit.timeStamp.hour();
+        NumberExpression<Integer> minute = endpointHit.timeStamp.minute();
+        NumberExpression<Long> hits = endpointHit.count();
+
+        List<Tuple> rows = new JPAQuery<Tuple>(entityManager)
+                .select(appId, uriId, year, month, day, hour, minute, hits)
+                .from(endpointHit)
+                .where(endpointHit.timeStamp.goe(from))
+                .groupBy(appId, uriId, year, month, day, hour, minute)
+                .fetch();
+
+        Map<Integer, String> appNames = appNames(rows.stream().map(row -> row.get(appId)));
+        Map<Integer, String> uriPaths = uriPaths(rows.stream().map(row -> row.get(uriId)));
+        return rows.stream()
+                .collect(Collectors.groupingBy(row -> LocalDateTime.of(row.get(year), row.get(month), row.get(day),
+                                row.get(hour), row.get(minute)),
+                        Collectors.mapping(row -> new EndpointStats(appNames.get(row.get(appId)),
+                                uriPaths.get(row.get(uriId)), row.get(hits).intValue()), Collectors.toList())));
+    }
+
+    private Map<Integer, String> appNames(Stream<Integer> ids) {
+        QApp app = QApp.app;
+        return names(ids, app.id, app.name, app);
+    }
+
+    private Map<Integer, String> uriPaths(Stream<Integer> ids) {
+        QUri uri = QUri.uri;
+        return names(ids, uri.id, uri.path, uri);
+    }
+
+    private Map<Integer, String> names(Stream<Integer> ids, NumberPath<Integer> idPath,
+                                       StringPath namePath, EntityPath<?> entity) {
+        Set<Integer> distinctIds = ids.collect(Collectors.toSet());
+        if (distinctIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return new JPAQuery<Tuple>(entityManager)
+                .select(idPath, namePath)
+                .from(entity)
+                .where(idPath.in(distinctIds))
+                .fetch()
+                .stream()
+                .collect(Collectors.toMap(row -> row.get(idPath), row -> row.get(namePath)));
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointStats;
+import ru.practicum.stats.model.EndpointHit;
+import ru.practicum.stats.sketch.SpaceSaving;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most hit endpoints of recent time buckets in Space-Saving summaries, so the top of a recent window is
+ * answered from a bounded amount of memory without reading hits. Counts are estimates that may exceed the real ones.
+ */
+@Component
+@Slf4j
+public class TopHitsTracker {
+    private final StatsStorage statsStorage;
+    private final int capacity;
+    private final long bucketMinutes;
+    private final Duration maxWindow;
+    private final Bucket[] buckets;
+
+    public TopHitsTracker(StatsStorage statsStorage,
+                          @Value("${stats.top.capacity}") int capacity,
+                          @Value("${stats.top.bucket-minutes}") int bucketMinutes,
+                          @Value("${stats.top.max-window-minutes}") int maxWindowMinutes) {
+        this.statsStorage = statsStorage;
+        this.capacity = capacity;
+        this.bucketMinutes = bucketMinutes;
+        this.maxWindow = Duration.ofMinutes(maxWindowMinutes);
+        // one spare bucket, as the current one is only partially filled
+        this.buckets = new Bucket[(maxWindowMinutes + bucketMinutes - 1) / bucketMinutes + 1];
+    }
+
+    /**
+     * Counts hits stored during the last window before the start, so the top is complete right away. Runs before
+     * HitRecorder, which depends on this tracker, is created and before the web server accepts hits, so no hit is
+     * counted both here and by {@link #record}.
+     */
+    @PostConstruct
+    public void warmUp() {
+        LocalDateTime from = LocalDateTime.now().minus(maxWindow);
+        Map<LocalDateTime, List<EndpointStats>> minuteStats = statsStorage.getMinuteStats(from);
+        minuteStats.forEach((minute, stats) -> stats.forEach(endpointStats ->
+                offer(endpointStats.getApp(), endpointStats.getUri(), minute, endpointStats.getHits())));
+        log.info("Warmed up top hits with {} minutes of hits", minuteStats.size());
+    }
+
+    public void record(List<EndpointHit> endpointHits) {
+        for (EndpointHit endpointHit : endpointHits) {
+            offer(endpointHit.getApp().getName(), endpointHit.getUri().getPath(), endpointHit.getTimeStamp(), 1);
+        }
+    }
+
+    public Duration getMaxWindow() {
+        return maxWindow;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns up to {@code k} most hit endpoints of the last {@code window}, rounded up to whole buckets.
+     */
+    public List<EndpointStats> top(int k, Duration window) {
+        return top(k, window, LocalDateTime.now());
+    }
+
+    synchronized List<EndpointStats> top(int k, Duration window, LocalDateTime now) {
+        long currentBucket = bucketOf(now);
+        long windowBuckets = Math.max(1, (window.toMinutes() + bucketMinutes - 1) / bucketMinutes);
+        Map<EndpointStats, Long> totals = new HashMap<>();
+
+        for (Bucket bucket : buckets) {
+            if (bucket != null && bucket.number > currentBucket - windowBuckets && bucket.number <= currentBucket) {
+                bucket.summary.addTo(totals);
+            }
+        }
+
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<EndpointStats, Long>comparingByValue().reversed())
+                .limit(k)
+                .map(entry -> new EndpointStats(entry.getKey().getApp(), entry.getKey().getUri(),
+                        (int) Math.min(Integer.MAX_VALUE, entry.getValue())))
+                .collect(Collectors.toList());
+    }
+
+    synchronized void offer(String app, String uri, LocalDateTime timeStamp, long hits) {
+        long number = bucketOf(timeStamp);
+        long currentBucket = bucketOf(LocalDateTime.now());
+
+        if (number <= currentBucket - buckets.length || number > currentBucket + 1) {
+            // hits outside of the kept buckets, e.g. replayed old ones, can't be in any window; a bucket ahead is
+            // allowed for clients whose clocks run slightly fast
+            return;
+        }
+
+        int index = (int) Math.floorMod(number, (long) buckets.length);
+        Bucket bucket = buckets[index];
+        if (bucket == null || bucket.number < number) {
+            bucket = new Bucket(number, new SpaceSaving<>(capacity));
+            buckets[index] = bucket;
+        } else if (bucket.number > number) {
+            return;
+        }
+
+        bucket.summary.offer(new EndpointStats(app, uri, 0), hits);
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) / 60, bucketMinutes);
+    }
+
+    private static class Bucket {
+        private final long number;
+        private final SpaceSaving<EndpointStats> summary;
+
+        private Bucket(long number, SpaceSaving<EndpointStats> summary) {
+            this.number = number;
+            this.summary = summary;
+        }
+    }
+}
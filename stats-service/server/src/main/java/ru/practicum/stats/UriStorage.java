@@ -0,0 +1,16 @@
+package ru.practicum.stats;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.stats.model.Uri;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UriStorage extends JpaRepository<Uri, Integer> {
+    Optional<Uri> findByPath(String path);
+
+    @Query("select u.id from Uri u where u.path in :paths")
+    List<Integer> findIdsByPathIn(Collection<String> paths);
+}
@@ -0,0 +1,144 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.HitRecorder;
+import ru.practicum.stats.model.EndpointHit;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+@Slf4j
+public class HitIngestBuffer {
+    private final HitRecorder hitRecorder;
+    private final IngestMode mode;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxAttempts;
+    private final MpscRingBuffer<EndpointHit> buffer;
+    private final Counter writtenHits;
+    private final Counter failedHits;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public HitIngestBuffer(HitRecorder hitRecorder, MeterRegistry meterRegistry,
+                           @Value("${stats.ingest.mode:ASYNC}") IngestMode mode,
+                           @Value("${stats.ingest.buffer-capacity:65536}") int capacity,
+                           @Value("${stats.ingest.batch-size:500}") int batchSize,
+                           @Value("${stats.ingest.flush-interval-ms:50}") long flushIntervalMs,
+                           @Value("${stats.ingest.max-attempts:3}") int maxAttempts) {
+        this.hitRecorder = hitRecorder;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.maxAttempts = maxAttempts;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.writtenHits = Counter.builder("stats.ingest.hits.written")
+                .description("Hits written by the write-behind writer")
+                .register(meterRegistry);
+        this.failedHits = Counter.builder("stats.ingest.hits.failed")
+                .description("Accepted hits the write-behind writer failed to store")
+                .register(meterRegistry);
+        Gauge.builder("stats.ingest.buffer.size", buffer, MpscRingBuffer::size)
+                .description("Accepted hits waiting to be written")
+                .register(meterRegistry);
+
+        if (mode == IngestMode.ASYNC) {
+            writer = new Thread(this::writeLoop, "stats-hit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Records hits synchronously, or queues them for the writer thread in asynchronous mode.
+     *
+     * @return {@code true} if hits were queued and will be stored later
+     */
+    public boolean accept(List<EndpointHit> endpointHits) {
+        if (mode == IngestMode.SYNC || !running) {
+            hitRecorder.record(endpointHits);
+            return false;
+        }
+
+        for (int i = 0; i < endpointHits.size(); i++) {
+            if (!buffer.offer(endpointHits.get(i))) {
+                // the writer is behind, so the caller pays for the write itself instead of losing hits
+                log.warn("Ingest buffer is full, writing {} hits synchronously", endpointHits.size() - i);
+                hitRecorder.record(endpointHits.subList(i, endpointHits.size()));
+                return false;
+            }
+        }
+
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            if (!writer.isAlive()) {
+                flush();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Retries a failed batch a bounded number of times, backing off a flush interval more on each attempt, before
+     * dropping it. Meanwhile the buffer fills up and new hits are written by their callers.
+     */
+    private void write(List<EndpointHit> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                hitRecorder.record(batch);
+                writtenHits.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failedHits.increment(batch.size());
+                    log.error("Dropped {} hits after {} failed attempts to write them", batch.size(), attempt, e);
+                    return;
+                }
+                log.warn("Failed to write {} hits on attempt {}, retrying: {}", batch.size(), attempt,
+                        e.getMessage());
+                LockSupport.parkNanos(this, flushIntervalNanos * attempt);
+            }
+        }
+    }
+
+    public enum IngestMode {
+        SYNC,
+        ASYNC
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.stats.ingest;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot by moving the tail with CAS and then publish the element into it. The consumer stops at the
+ * first claimed but not yet published slot, so elements are always drained in claim order.
+ */
+public class MpscRingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two");
+        }
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public boolean offer(T element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+
+        slots.set((int) (claimed & mask), element);
+        return true;
+    }
+
+    /**
+     * Must only be called from the consumer thread.
+     */
+    public int drainTo(Collection<? super T> target, int maxElements) {
+        long current = head.get();
+        int drained = 0;
+
+        while (drained < maxElements) {
+            int index = (int) (current & mask);
+            T element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+
+            slots.lazySet(index, null);
+            target.add(element);
+            current++;
+            drained++;
+        }
+
+        head.lazySet(current);
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
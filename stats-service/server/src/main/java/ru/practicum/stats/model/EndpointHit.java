@@ -16,10 +16,16 @@ import java.util.Objects;
 @Table(name = "endpoint_hits")
 public class EndpointHit {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "endpoint_hits_seq")
+    @SequenceGenerator(name = "endpoint_hits_seq", sequenceName = "endpoint_hits_seq", allocationSize = 50)
     private Long id;
-    private String app;
-    private String uri;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "app_id")
+    private App app;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "uri_id")
+    private Uri uri;
+    @Convert(converter = IpAddressConverter.class)
     private String ip;
     @Column(name = "time_stamp")
     private LocalDateTime timeStamp;
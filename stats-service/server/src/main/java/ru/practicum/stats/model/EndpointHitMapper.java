@@ -1,8 +1,8 @@
 package ru.practicum.stats.model;
 
-import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
 import ru.practicum.utils.Constants;
+import ru.practicum.utils.IpAddresses;
 
 import java.time.LocalDateTime;
 
@@ -13,19 +13,10 @@ public class EndpointHitMapper {
     public static EndpointHit toEndpointHit(InputEndpointHit inputEndpointHit) {
         return new EndpointHit(
                 null,
-                inputEndpointHit.getApp(),
-                inputEndpointHit.getUri(),
-                inputEndpointHit.getIp(),
+                new App(null, inputEndpointHit.getApp()),
+                new Uri(null, inputEndpointHit.getUri()),
+                IpAddresses.normalize(inputEndpointHit.getIp()),
                 LocalDateTime.parse(inputEndpointHit.getTimestamp(), Constants.FORMATTER)
         );
     }
-
-    public static EndpointStats toEndpointStats(EndpointHit endpointHit) {
-        return new EndpointStats(
-                endpointHit.getApp(),
-                endpointHit.getUri(),
-                0
-        );
-    }
-
 }
@@ -0,0 +1,19 @@
+package ru.practicum.stats.model;
+
+import ru.practicum.utils.IpAddresses;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return (ip == null) ? null : IpAddresses.toBytes(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] address) {
+        return (address == null) ? null : IpAddresses.toText(address);
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.stats.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps range partitions of endpoint_hits (PostgreSQL only): creates them ahead of time and drops or detaches
+ * the ones that fell out of the retention period. Rows outside every partition land in endpoint_hits_default.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "stats.partitions.enabled", havingValue = "true")
+public class HitPartitionManager {
+    static final String PARTITION_PREFIX = "endpoint_hits_p";
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int intervalDays;
+    private final int createAhead;
+    private final int retentionDays;
+    private final RetentionAction retentionAction;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               @Value("${stats.partitions.interval-days}") int intervalDays,
+                               @Value("${stats.partitions.create-ahead}") int createAhead,
+                               @Value("${stats.partitions.retention-days}") int retentionDays,
+                               @Value("${stats.partitions.retention-action}") RetentionAction retentionAction) {
+        if (intervalDays < 1) {
+            throw new IllegalArgumentException("Partition interval must be at least one day");
+        }
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.intervalDays = intervalDays;
+        this.createAhead = createAhead;
+        this.retentionDays = retentionDays;
+        this.retentionAction = retentionAction;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partitions.cron}")
+    public void maintainPartitions() {
+        maintainPartitions(LocalDate.now());
+    }
+
+    void maintainPartitions(LocalDate today) {
+        if (!isPartitioned()) {
+            log.warn("endpoint_hits is not a partitioned table, partition maintenance is skipped");
+            return;
+        }
+
+        LocalDate start = partitionStart(today);
+        for (int i = 0; i <= createAhead; i++) {
+            createPartition(start.plusDays((long) i * intervalDays));
+        }
+
+        if (retentionDays > 0) {
+            LocalDate oldestKept = today.minusDays(retentionDays);
+            for (String partition : existingPartitions()) {
+                LocalDate partitionStart = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()),
+                        NAME_FORMATTER);
+                if (!partitionStart.plusDays(intervalDays).isAfter(oldestKept)) {
+                    expirePartition(partition);
+                }
+            }
+        }
+    }
+
+    LocalDate partitionStart(LocalDate date) {
+        return LocalDate.ofEpochDay(Math.floorDiv(date.toEpochDay(), intervalDays) * intervalDays);
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList("select c.relkind::text from pg_class c " +
+                "where c.oid = to_regclass('endpoint_hits')", String.class);
+        return kinds.contains("p");
+    }
+
+    private List<String> existingPartitions() {
+        return jdbcTemplate.queryForList("select c.relname::text from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid " +
+                "where i.inhparent = to_regclass('endpoint_hits') and c.relname like '" + PARTITION_PREFIX + "%' " +
+                "order by c.relname", String.class);
+    }
+
+    private void createPartition(LocalDate start) {
+        String name = PARTITION_PREFIX + start.format(NAME_FORMATTER);
+        try {
+            jdbcTemplate.execute(String.format("create table if not exists %s partition of endpoint_hits " +
+                    "for values from ('%s') to ('%s')", name, start, start.plusDays(intervalDays)));
+        } catch (DataAccessException e) {
+            // usually means endpoint_hits_default already holds rows of this range
+            log.warn("Failed to create partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void expirePartition(String name) {
+        if (retentionAction == RetentionAction.DETACH) {
+            jdbcTemplate.execute(String.format("alter table endpoint_hits detach partition %s", name));
+            log.info("Detached expired partition {}", name);
+        } else {
+            jdbcTemplate.execute(String.format("drop table %s", name));
+            log.info("Dropped expired partition {}", name);
+        }
+    }
+
+    public enum RetentionAction {
+        DROP,
+        DETACH
+    }
+}
@@ -0,0 +1,195 @@
+package ru.practicum.stats.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mergeable approximate distinct counter. Registers are stored sparsely while only a few of them are set,
+ * so a sketch of an hour with a handful of visitors takes a few bytes instead of the whole register array.
+ */
+public class HyperLogLog {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+    private static final int SPARSE_ENTRY_SIZE = 3;
+    private static final int HEADER_SIZE = 2;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("Precision should be between %d and %d, but was %d",
+                    MIN_PRECISION, MAX_PRECISION, precision));
+        }
+
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public static HyperLogLog withRelativeError(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new IllegalArgumentException("Relative error should be between 0 and 1, but was " + relativeError);
+        }
+
+        double registerCount = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registerCount) / Math.log(2));
+        return new HyperLogLog(Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision)));
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+
+        if (buffer.get() == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            while (buffer.hasRemaining()) {
+                int index = Short.toUnsignedInt(buffer.getShort());
+                sketch.registers[index] = buffer.get();
+            }
+        }
+
+        return sketch;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void offer(String value) {
+        offerHash(hash(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public long estimate() {
+        int registerCount = registers.length;
+        double sum = 0;
+        int emptyRegisters = 0;
+
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+
+        double estimate = alpha(registerCount) * registerCount * registerCount / sum;
+
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / emptyRegisters);
+        }
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges another sketch into this one and returns the result. Sketches of different precisions are merged at
+     * the lower one, so when the other sketch is coarser a folded copy of this sketch is returned instead.
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision < precision) {
+            return foldTo(other.precision).merge(other);
+        }
+
+        HyperLogLog source = (other.precision == precision) ? other : other.foldTo(precision);
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], source.registers[i]);
+        }
+
+        return this;
+    }
+
+    public byte[] toBytes() {
+        int setRegisters = 0;
+
+        for (byte register : registers) {
+            if (register != 0) {
+                setRegisters++;
+            }
+        }
+
+        if (setRegisters * SPARSE_ENTRY_SIZE < registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + setRegisters * SPARSE_ENTRY_SIZE);
+            buffer.put((byte) precision).put(SPARSE);
+
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+
+            return buffer.array();
+        }
+
+        return ByteBuffer.allocate(HEADER_SIZE + registers.length)
+                .put((byte) precision)
+                .put(DENSE)
+                .put(registers)
+                .array();
+    }
+
+    private void offerHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), Long.SIZE - precision) + 1;
+
+        if (registers[index] < rank) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    private HyperLogLog foldTo(int targetPrecision) {
+        HyperLogLog folded = new HyperLogLog(targetPrecision);
+        int shift = precision - targetPrecision;
+        int lowBitsMask = (1 << shift) - 1;
+
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+
+            // the low index bits of the finer sketch become the leading bits of the coarser sketch's rank
+            int lowBits = i & lowBitsMask;
+            int highestLowBit = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(lowBits);
+            int rank = (lowBits == 0) ? shift + registers[i] : shift - highestLowBit;
+            int index = i >>> shift;
+
+            if (folded.registers[index] < rank) {
+                folded.registers[index] = (byte) rank;
+            }
+        }
+
+        return folded;
+    }
+
+    private static double alpha(int registerCount) {
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+    private static long hash(byte[] value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : value) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3f97f4a7c15L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
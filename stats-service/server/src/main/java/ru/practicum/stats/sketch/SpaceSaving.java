@@ -0,0 +1,86 @@
+package ru.practicum.stats.sketch;
+
+import java.util.*;
+
+/**
+ * Space-Saving summary of the most frequent keys. At most {@code capacity} keys are counted; a new key that doesn't
+ * fit replaces the least counted one and inherits its count, so counts are upper bounds that overestimate by at most
+ * the smallest count in the summary. Any key seen more than {@code total / capacity} times is guaranteed to be kept.
+ */
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeSet<Counter<K>> byCount = new TreeSet<>(Comparator
+            .<Counter<K>>comparingLong(counter -> counter.count)
+            .thenComparingLong(counter -> counter.sequence));
+    private long sequence;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive, but was " + capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+    public void offer(K key, long count) {
+        Counter<K> counter = counters.get(key);
+
+        if (counter == null && counters.size() < capacity) {
+            counter = new Counter<>(key, 0);
+            counters.put(key, counter);
+        } else if (counter == null) {
+            Counter<K> smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            counter = new Counter<>(key, smallest.count);
+            counters.put(key, counter);
+        } else {
+            byCount.remove(counter);
+        }
+
+        counter.count += count;
+        counter.sequence = sequence++;
+        byCount.add(counter);
+    }
+
+    /**
+     * Adds the counts of this summary to the given totals, which is how summaries of several periods are combined.
+     */
+    public void addTo(Map<K, Long> totals) {
+        counters.values().forEach(counter -> totals.merge(counter.key, counter.count, Long::sum));
+    }
+
+    /**
+     * Returns up to {@code k} keys with the largest counts, most counted first.
+     */
+    public List<Map.Entry<K, Long>> top(int k) {
+        List<Map.Entry<K, Long>> top = new ArrayList<>(Math.min(k, counters.size()));
+        Iterator<Counter<K>> iterator = byCount.descendingIterator();
+
+        while (iterator.hasNext() && top.size() < k) {
+            Counter<K> counter = iterator.next();
+            top.add(Map.entry(counter.key, counter.count));
+        }
+
+        return top;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static class Counter<K> {
+        private final K key;
+        private long count;
+        private long sequence;
+
+        private Counter(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -7,6 +7,14 @@ public class Constants {
     }
 
     public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final int MAX_HIT_BATCH_SIZE = 1000;
     public static final String INCORRECTLY_MADE_REQUEST_MESSAGE = "Incorrectly made request.";
+    public static final String INCORRECT_IP_MESSAGE = "Incorrect ip address: %s.";
+    public static final String INCORRECT_TOP_WINDOW_MESSAGE = "Incorrect window: %s. It should be a positive " +
+            "duration like 1h or 30m, not longer than %s.";
+    public static final String INCORRECT_STREAM_LIMIT_MESSAGE = "Incorrect limit: approximate unique statistics " +
+            "and statistics of more than 1000 exact uris are gathered in memory, so at most %d endpoints can be " +
+            "streamed.";
+    public static final String INCORRECT_TOP_SIZE_MESSAGE = "Incorrect k: %d. It should be between 1 and %d.";
     public static final String START_SHOULD_BE_BEFORE_END_MESSAGE = "Incorrect searching interval: start date should be before end date.";
 }
@@ -0,0 +1,41 @@
+package ru.practicum.utils;
+
+import javax.validation.ValidationException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+public class IpAddresses {
+    private static final Pattern IPV4 = Pattern.compile("^(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)" +
+            "(\\.(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)){3}$");
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Returns 4 bytes for IPv4 and 16 bytes for IPv6 addresses. Host names are rejected, so no DNS lookup is made.
+     */
+    public static byte[] toBytes(String ip) {
+        if (ip == null || !(IPV4.matcher(ip).matches() || ip.indexOf(':') >= 0)) {
+            throw new ValidationException(String.format(Constants.INCORRECT_IP_MESSAGE, ip));
+        }
+
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new ValidationException(String.format(Constants.INCORRECT_IP_MESSAGE, ip));
+        }
+    }
+
+    public static String toText(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Stored ip address has wrong length: " + address.length);
+        }
+    }
+
+    public static String normalize(String ip) {
+        return toText(toBytes(ip));
+    }
+}
@@ -0,0 +1,102 @@
+create sequence if not exists endpoint_hits_seq increment by 50;
+
+create table if not exists apps (
+  id int GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  CONSTRAINT uq_apps_name UNIQUE (name)
+);
+
+create table if not exists uris (
+  id int GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  path VARCHAR(255) NOT NULL,
+  CONSTRAINT uq_uris_path UNIQUE (path)
+);
+
+-- Bodies are single-quoted: the script splitter does not know dollar quoting and would split them at semicolons.
+-- Converts a text ip of the legacy layout to the bytes IpAddresses stores: 4 for IPv4 (also IPv4-mapped IPv6),
+-- 16 for IPv6. Legacy rows were not validated, so anything else becomes an md5 of the text, which keeps distinct
+-- values distinct for unique counts.
+create or replace function pg_temp.legacy_ip_bytes(ip text) returns bytea language plpgsql immutable as '
+declare
+  address inet;
+  text_address text;
+  dotted text;
+  hex text;
+  halves text[];
+  head text[] := array[]::text[];
+  tail text[] := array[]::text[];
+begin
+  address := ip::inet;
+
+  if family(address) = 4 then
+    return decode(lpad(to_hex(address - ''0.0.0.0''::inet), 8, ''0''), ''hex'');
+  elsif address << ''::ffff:0:0/96''::inet then
+    return decode(lpad(to_hex(address - ''::ffff:0:0''::inet), 8, ''0''), ''hex'');
+  end if;
+
+  text_address := host(address);
+  if position(''.'' in text_address) > 0 then
+    dotted := substring(text_address from ''[^:]*$'');
+    hex := lpad(to_hex(dotted::inet - ''0.0.0.0''::inet), 8, ''0'');
+    text_address := left(text_address, length(text_address) - length(dotted)) || left(hex, 4) || '':'' || right(hex, 4);
+  end if;
+
+  halves := string_to_array(text_address, ''::'');
+  if halves[1] <> '''' then
+    head := string_to_array(halves[1], '':'');
+  end if;
+  if array_length(halves, 1) = 2 and halves[2] <> '''' then
+    tail := string_to_array(halves[2], '':'');
+  end if;
+
+  return decode((select string_agg(lpad(word, 4, ''0''), '''' order by n)
+                 from unnest(head || array_fill(''0''::text, array[8 - cardinality(head) - cardinality(tail)]) || tail)
+                      with ordinality as words (word, n)), ''hex'');
+exception
+  when others then
+    return decode(md5(ip), ''hex'');
+end';
+
+-- Earlier versions kept app, uri and ip of endpoint_hits as text. Such a table is moved to the dictionaries in place,
+-- in one transaction; it stays unpartitioned.
+do '
+begin
+  if exists (select 1 from information_schema.columns
+             where table_schema = current_schema() and table_name = ''endpoint_hits'' and column_name = ''app'') then
+    insert into apps (name) select distinct app from endpoint_hits on conflict do nothing;
+    insert into uris (path) select distinct uri from endpoint_hits on conflict do nothing;
+
+    alter table endpoint_hits add column app_id int, add column uri_id int, add column ip_address bytea;
+    update endpoint_hits h
+    set app_id = a.id, uri_id = u.id, ip_address = pg_temp.legacy_ip_bytes(h.ip)
+    from apps a, uris u
+    where a.name = h.app and u.path = h.uri;
+
+    alter table endpoint_hits drop column app, drop column uri, drop column ip;
+    alter table endpoint_hits rename column ip_address to ip;
+    alter table endpoint_hits
+      alter column app_id set not null,
+      alter column uri_id set not null,
+      alter column ip set not null,
+      add foreign key (app_id) references apps (id),
+      add foreign key (uri_id) references uris (id);
+  end if;
+end';
+
+drop function if exists pg_temp.legacy_ip_bytes(text);
+
+create table if not exists endpoint_hits (
+  id bigint NOT NULL DEFAULT nextval('endpoint_hits_seq'),
+  app_id int NOT NULL REFERENCES apps (id),
+  uri_id int NOT NULL REFERENCES uris (id),
+  ip bytea NOT NULL,
+  time_stamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  PRIMARY KEY (id, time_stamp)
+) PARTITION BY RANGE (time_stamp);
+
+create table if not exists endpoint_hits_default partition of endpoint_hits default;
+
+-- ids of existing rows may come from the identity column of earlier versions; never move the sequence backwards,
+-- as a running instance may hold a pooled block above max(id)
+select setval('endpoint_hits_seq', greatest(coalesce((select max(id) from endpoint_hits), 0) + 1,
+                                            (select last_value from endpoint_hits_seq)));
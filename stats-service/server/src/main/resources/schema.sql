@@ -1,7 +1,44 @@
+create sequence if not exists endpoint_hits_seq increment by 50;
+
+create table if not exists apps (
+  id int GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  CONSTRAINT uq_apps_name UNIQUE (name)
+);
+
+create table if not exists uris (
+  id int GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  path VARCHAR(255) NOT NULL,
+  CONSTRAINT uq_uris_path UNIQUE (path)
+);
+
 create table if not exists endpoint_hits (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  app_id int NOT NULL REFERENCES apps (id),
+  uri_id int NOT NULL REFERENCES uris (id),
+  ip bytea NOT NULL,
+  time_stamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+create index if not exists idx_endpoint_hits_time_stamp on endpoint_hits (time_stamp);
+create index if not exists idx_endpoint_hits_uri_id_time_stamp on endpoint_hits (uri_id, time_stamp);
+
+create table if not exists endpoint_hits_hourly (
   id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   app VARCHAR(255) NOT NULL,
   uri VARCHAR(255) NOT NULL,
-  ip VARCHAR(16) NOT NULL,
-  time_stamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+  hour_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  hits bigint NOT NULL,
+  ip_sketch bytea,
+  CONSTRAINT uq_endpoint_hits_hourly UNIQUE (app, uri, hour_start)
+);
+
+create index if not exists idx_endpoint_hits_hourly_uri on endpoint_hits_hourly (uri, hour_start);
+
+insert into endpoint_hits_hourly (app, uri, hour_start, hits)
+select a.name, u.path, date_trunc('hour', h.time_stamp), count(*)
+from endpoint_hits h
+join apps a on a.id = h.app_id
+join uris u on u.id = h.uri_id
+where not exists (select 1 from endpoint_hits_hourly)
+group by a.name, u.path, date_trunc('hour', h.time_stamp);
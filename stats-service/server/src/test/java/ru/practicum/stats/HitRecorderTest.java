@@ -0,0 +1,77 @@
+package ru.practicum.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.EndpointHit;
+import ru.practicum.stats.model.HourlyHits;
+import ru.practicum.stats.model.Uri;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitRecorderTest {
+    @Mock
+    private StatsStorage statsStorage;
+    @Mock
+    private HourlyHitsStorage hourlyHitsStorage;
+    @Mock
+    private HitDictionary hitDictionary;
+    @Mock
+    private TopHitsTracker topHitsTracker;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private HitRecorder hitRecorder;
+    private final App app = new App(1, "ewm-main-service");
+    private final Uri uri = new Uri(1, "/events/1");
+    private final EndpointHit hit = new EndpointHit(null, app, uri, "192.163.0.1",
+            LocalDateTime.of(2022, 9, 6, 11, 0, 23));
+
+    @BeforeEach
+    void setUp() {
+        hitRecorder = new HitRecorder(statsStorage, hourlyHitsStorage, hitDictionary, topHitsTracker,
+                transactionManager, 0.02);
+        when(hitDictionary.app(app.getName())).thenReturn(app);
+        when(hitDictionary.uri(uri.getPath())).thenReturn(uri);
+        when(statsStorage.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(hourlyHitsStorage.findByAppAndUriAndHourStart(any(), any(), any())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void record_WhenHourlyRowConflictsRepeatedly_ThenRetryUntilSaved() {
+        when(hourlyHitsStorage.saveAndFlush(any(HourlyHits.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThat(hitRecorder.record(List.of(hit))).containsExactly(hit);
+
+        verify(hourlyHitsStorage, times(3)).saveAndFlush(any(HourlyHits.class));
+        verify(topHitsTracker, times(1)).record(List.of(hit));
+    }
+
+    @Test
+    void record_WhenHourlyRowConflictPersists_ThenGiveUpAfterBoundedAttempts() {
+        when(hourlyHitsStorage.saveAndFlush(any(HourlyHits.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThatThrownBy(() -> hitRecorder.record(List.of(hit)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(hourlyHitsStorage, times(5)).saveAndFlush(any(HourlyHits.class));
+        verify(topHitsTracker, never()).record(anyList());
+    }
+}
@@ -11,12 +11,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.StatsQuery;
+import ru.practicum.UriMatch;
+import ru.practicum.utils.Constants;
 
 import java.time.format.DateTimeParseException;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -96,6 +102,76 @@ class StatsControllerITest {
         return Stream.of(nullApp, blankApp, nullUri, blankUri, nullIp, blankIp, nullTimestamp, blankTimestamp);
     }
 
+    @SneakyThrows
+    @Test
+    void saveEndpointRequests_WhenRequestBodyIsValid_ThenReturnCreated() {
+        List<InputEndpointHit> input = List.of(
+                new InputEndpointHit("ewm-main-service", "/events/1", "192.163.0.1", "2022-09-06 11:00:23"),
+                new InputEndpointHit("ewm-main-service", "/events/2", "192.163.0.2", "2022-09-06 11:00:24"));
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isCreated());
+
+        verify(statsService, Mockito.times(1)).saveEndpointHits(input);
+    }
+
+    @SneakyThrows
+    @Test
+    void saveEndpointRequests_WhenHitsAreQueued_ThenReturnAccepted() {
+        List<InputEndpointHit> input = List.of(
+                new InputEndpointHit("ewm-main-service", "/events/1", "192.163.0.1", "2022-09-06 11:00:23"));
+        when(statsService.saveEndpointHits(input)).thenReturn(true);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isAccepted());
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @MethodSource("wrongInputEndpointRequestStream")
+    void saveEndpointRequests_WhenOneOfHitsIsNotValid_ThenReturnBadRequest(InputEndpointHit wrongHit) {
+        List<InputEndpointHit> input = List.of(
+                new InputEndpointHit("ewm-main-service", "/events/1", "192.163.0.1", "2022-09-06 11:00:23"),
+                wrongHit);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statsService);
+    }
+
+    @SneakyThrows
+    @Test
+    void saveEndpointRequests_WhenBatchIsEmpty_ThenReturnBadRequest() {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statsService);
+    }
+
+    @SneakyThrows
+    @Test
+    void saveEndpointRequests_WhenBatchIsTooLarge_ThenReturnBadRequest() {
+        InputEndpointHit hit = new InputEndpointHit("ewm-main-service", "/events/1", "192.163.0.1",
+                "2022-09-06 11:00:23");
+        List<InputEndpointHit> input = Collections.nCopies(Constants.MAX_HIT_BATCH_SIZE + 1, hit);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(input)))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statsService);
+    }
+
     @SneakyThrows
     @Test
     void getStats_WhenAllParametersExist_ThenReturnOk() {
@@ -105,7 +181,7 @@ class StatsControllerITest {
         boolean unique = true;
         List<EndpointStats> stats = List.of(new EndpointStats("ewm-main-service", "/events/1", 4),
                 new EndpointStats("ewm-main-service", "/events/2", 2));
-        when(statsService.getStats(start, end, uris, unique)).thenReturn(stats);
+        when(statsService.getStats(start, end, uris, unique, false, UriMatch.PREFIX)).thenReturn(stats);
 
         String output = mockMvc.perform(get("/stats")
                         .param("start", start)
@@ -121,7 +197,103 @@ class StatsControllerITest {
                 .as("Check return value when getting endpoint's statistics")
                 .isNotNull()
                 .isEqualTo(objectMapper.writeValueAsString(stats));
-        verify(statsService, Mockito.times(1)).getStats(start, end, uris, unique);
+        verify(statsService, Mockito.times(1)).getStats(start, end, uris, unique, false, UriMatch.PREFIX);
+    }
+
+    @SneakyThrows
+    @Test
+    void getTopStats_WhenParametersAreMissing_ThenUseDefaults() {
+        List<EndpointStats> top = List.of(new EndpointStats("ewm-main-service", "/events/1", 4));
+        when(statsService.getTopStats(10, "1h")).thenReturn(top);
+
+        String output = mockMvc.perform(get("/stats/top"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(output)
+                .as("Check top endpoints")
+                .isEqualTo(objectMapper.writeValueAsString(top));
+    }
+
+    @SneakyThrows
+    @Test
+    void streamStats_WhenParametersAreValid_ThenWriteNewlineDelimitedJson() {
+        String start = "2021-09-06 11:00:23";
+        String end = "2022-09-06 11:00:23";
+        EndpointStats first = new EndpointStats("ewm-main-service", "/events/1", 4);
+        EndpointStats second = new EndpointStats("ewm-main-service", "/events/2", 2);
+        doAnswer(invocation -> {
+            Consumer<EndpointStats> consumer = invocation.getArgument(7);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(statsService).streamStats(eq(start), eq(end), isNull(), eq(false), eq(false), eq(UriMatch.PREFIX),
+                eq(10), any());
+
+        MockHttpServletResponse response = mockMvc.perform(get("/stats/stream")
+                        .param("start", start)
+                        .param("end", end)
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        assertThat(response.getContentAsString())
+                .as("Check streamed endpoint's statistics")
+                .isEqualTo(objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second)
+                        + "\n");
+    }
+
+    @SneakyThrows
+    @Test
+    void streamStats_WhenLimitIsNotPositive_ThenReturnBadRequest() {
+        mockMvc.perform(get("/stats/stream")
+                        .param("start", "2021-09-06 11:00:23")
+                        .param("end", "2022-09-06 11:00:23")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statsService);
+    }
+
+    @SneakyThrows
+    @Test
+    void queryStats_WhenBodyIsValid_ThenReturnOk() {
+        String start = "2021-09-06 11:00:23";
+        String end = "2022-09-06 11:00:23";
+        StatsQuery query = new StatsQuery(start, end, List.of("/events/1", "/events/2"), true, false, UriMatch.EXACT);
+        List<EndpointStats> stats = List.of(new EndpointStats("ewm-main-service", "/events/1", 4));
+        when(statsService.getStats(start, end, new String[]{"/events/1", "/events/2"}, true, false, UriMatch.EXACT))
+                .thenReturn(stats);
+
+        String output = mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(query)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(output)
+                .as("Check return value when querying endpoint's statistics with a body")
+                .isEqualTo(objectMapper.writeValueAsString(stats));
+    }
+
+    @SneakyThrows
+    @Test
+    void queryStats_WhenStartIsMissing_ThenReturnBadRequest() {
+        StatsQuery query = new StatsQuery(null, "2022-09-06 11:00:23", List.of("/events/1"), false, false,
+                UriMatch.EXACT);
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(query)))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(statsService);
     }
 
     @SneakyThrows
@@ -135,7 +307,7 @@ class StatsControllerITest {
                         .param("end", end))
                 .andExpect(status().isOk());
 
-        verify(statsService, Mockito.times(1)).getStats(start, end, null, false);
+        verify(statsService, Mockito.times(1)).getStats(start, end, null, false, false, UriMatch.PREFIX);
     }
 
     @SneakyThrows
@@ -143,7 +315,7 @@ class StatsControllerITest {
     void getStats_ThrowsDateTimeParseException_ThenReturnBadRequest() {
         String start = "2021-09-06 11:00:23";
         String end = "2022-09-06 11:00:23";
-        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean()))
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(UriMatch.class)))
                 .thenThrow(DateTimeParseException.class);
 
         mockMvc.perform(get("/stats")
@@ -152,7 +324,7 @@ class StatsControllerITest {
                 .andExpect(status().isBadRequest());
 
         verify(statsService, Mockito.times(1)).getStats(anyString(), anyString(), any(),
-                anyBoolean());
+                anyBoolean(), anyBoolean(), any(UriMatch.class));
     }
 
     @SneakyThrows
@@ -6,18 +6,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.UriMatch;
+
+import javax.validation.ValidationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatCode;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class StatsServiceImplITest {
     private final StatsService statsService;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
@@ -25,7 +34,7 @@ class StatsServiceImplITest {
         String start = "2021-09-06 11:00:23";
         String end = "2022-09-06 11:00:23";
 
-        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, false))
+        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, false, false, UriMatch.PREFIX))
                 .as("Check return value when the database is empty")
                 .isNotNull()
                 .asList()
@@ -48,7 +57,7 @@ class StatsServiceImplITest {
         statsService.saveEndpointHit(new InputEndpointHit(app1, uri2, ip2, "2021-09-16 11:00:23"));
         statsService.saveEndpointHit(new InputEndpointHit(app1, uri2, ip1, "2021-09-26 11:00:23"));
 
-        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, false))
+        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, false, false, UriMatch.PREFIX))
                 .as("Check return value when the database is empty")
                 .isNotNull()
                 .asList()
@@ -57,7 +66,7 @@ class StatsServiceImplITest {
                 .contains(new EndpointStats(app2, uri1, 1), Index.atIndex(1))).doesNotThrowAnyException();
 
         assertThatCode(() -> assertThat(statsService.getStats("2022-09-06 11:00:23", "2023-09-16 11:00:23", new String[]{},
-                false))
+                false, false, UriMatch.PREFIX))
                 .as("Check return value when the database is not empty and there are no uris for search")
                 .isNotNull()
                 .asList()
@@ -81,11 +90,244 @@ class StatsServiceImplITest {
         statsService.saveEndpointHit(new InputEndpointHit(app1, uri2, ip2, "2021-09-16 11:00:23"));
         statsService.saveEndpointHit(new InputEndpointHit(app1, uri2, ip1, "2021-09-26 11:00:23"));
 
-        assertThatCode(() -> assertThat(statsService.getStats(start, end, new String[]{uri1}, false))
+        assertThatCode(() -> assertThat(statsService.getStats(start, end, new String[]{uri1}, false, false,
+                UriMatch.PREFIX))
                 .as("Check return value when the database is not empty and there are uris for search")
                 .isNotNull()
                 .asList()
                 .hasSize(1)
                 .contains(new EndpointStats(app2, uri1, 1))).doesNotThrowAnyException();
     }
-}
\ No newline at end of file
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenMatchIsExact_ThenIgnoreUrisStartingWithRequestedOne() {
+        String start = "2021-09-06 11:00:23";
+        String end = "2022-09-06 11:00:23";
+        String app = "ewm-main-service";
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.1", "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/10", "192.163.0.2", "2021-09-16 11:00:23"));
+
+        assertThat(statsService.getStats(start, end, new String[]{"/events/1"}, true, false, UriMatch.EXACT))
+                .as("Check return value when uris should match exactly")
+                .asList()
+                .containsExactly(new EndpointStats(app, "/events/1", 1));
+        assertThat(statsService.getStats(start, end, new String[]{"/events/1"}, true, false, UriMatch.PREFIX))
+                .as("Check return value when uris should match by prefix")
+                .asList()
+                .hasSize(2);
+        assertThat(statsService.getStats(start, end, new String[]{"/events/2"}, true, false, UriMatch.EXACT))
+                .as("Check return value when no requested uri was hit")
+                .asList()
+                .isEmpty();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void streamStats_WhenLimitIsSet_ThenPassMostHitEndpointsInOrder() {
+        String start = "2021-09-06 11:00:23";
+        String end = "2022-09-06 11:00:23";
+        String app = "ewm-main-service";
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.1", "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/2", "192.163.0.1", "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/2", "192.163.0.2", "2021-09-17 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/3", "192.163.0.1", "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/3", "192.163.0.2", "2021-09-17 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/3", "192.163.0.3", "2021-09-18 11:00:23"));
+        List<EndpointStats> streamed = new ArrayList<>();
+
+        statsService.streamStats(start, end, null, true, false, UriMatch.PREFIX, 2, streamed::add);
+
+        assertThat(streamed)
+                .as("Check streamed endpoints when their number is limited")
+                .asList()
+                .containsExactly(new EndpointStats(app, "/events/3", 3), new EndpointStats(app, "/events/2", 2));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void streamStats_WhenIntervalHasFullHours_ThenStreamRollupsAndEdgesSummedByDatabase() {
+        String app = "ewm-main-service";
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.1", "2022-09-06 11:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.1", "2022-09-06 12:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.2", "2022-09-06 14:20:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.2", "2022-09-06 14:40:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/2", "192.163.0.1", "2022-09-06 13:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/2", "192.163.0.3", "2022-09-06 13:20:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/3", "192.163.0.1", "2022-09-06 12:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/users/1", "192.163.0.1", "2022-09-06 12:10:00"));
+        List<EndpointStats> streamed = new ArrayList<>();
+
+        statsService.streamStats("2022-09-06 11:00:10", "2022-09-06 14:30:00", new String[]{"/EVENTS"}, false,
+                false, UriMatch.PREFIX, 2, streamed::add);
+
+        assertThat(streamed)
+                .as("Check streamed endpoints summed from hourly rollups and raw hits")
+                .asList()
+                .containsExactly(new EndpointStats(app, "/events/1", 3), new EndpointStats(app, "/events/2", 2));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void streamStats_WhenExactUrisFillSeveralChunks_ThenStreamTopOfAllChunks() {
+        String app = "ewm-main-service";
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.1", "2022-09-06 12:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1", "192.163.0.2", "2022-09-06 13:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1400", "192.163.0.1", "2022-09-06 12:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1400", "192.163.0.2", "2022-09-06 12:40:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/1400", "192.163.0.3", "2022-09-06 13:40:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, "/events/700", "192.163.0.1", "2022-09-06 13:30:00"));
+        String[] uris = IntStream.range(0, 1500).mapToObj(i -> "/events/" + i).toArray(String[]::new);
+        List<EndpointStats> streamed = new ArrayList<>();
+
+        statsService.streamStats("2022-09-06 12:00:00", "2022-09-06 14:00:00", uris, false, false,
+                UriMatch.EXACT, 2, streamed::add);
+
+        assertThat(streamed)
+                .as("Check streamed endpoints of exact uris looked up in chunks")
+                .asList()
+                .containsExactly(new EndpointStats(app, "/events/1400", 3), new EndpointStats(app, "/events/1", 2));
+    }
+
+    @Test
+    void streamStats_WhenApproximateUniqueLimitExceedsBuffer_ThenThrowValidationException() {
+        assertThatThrownBy(() -> statsService.streamStats("2022-09-06 11:00:00", "2022-09-06 14:00:00", null,
+                true, true, UriMatch.PREFIX, Integer.MAX_VALUE, stats -> { }))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenRequiredUnique_ThenCountDistinctIpsPerEndpoint() {
+        String start = "2021-09-06 11:00:23";
+        String end = "2022-09-06 11:00:23";
+        String app = "ewm-main-service";
+        String uri1 = "/events/1";
+        String uri2 = "/events/2";
+        String ip1 = "192.163.0.1";
+        String ip2 = "192.163.0.2";
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, ip1, "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, ip1, "2021-09-17 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri2, ip1, "2021-09-16 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri2, ip2, "2021-09-18 11:00:23"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri2, ip2, "2021-09-19 11:00:23"));
+
+        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, true, false, UriMatch.PREFIX))
+                .as("Check return value when ips should be unique")
+                .isNotNull()
+                .asList()
+                .hasSize(2)
+                .contains(new EndpointStats(app, uri2, 2), Index.atIndex(0))
+                .contains(new EndpointStats(app, uri1, 1), Index.atIndex(1))).doesNotThrowAnyException();
+
+        assertThatCode(() -> assertThat(statsService.getStats(start, end, null, false, false, UriMatch.PREFIX))
+                .as("Check return value when ips shouldn't be unique")
+                .isNotNull()
+                .asList()
+                .hasSize(2)
+                .contains(new EndpointStats(app, uri2, 3), Index.atIndex(0))
+                .contains(new EndpointStats(app, uri1, 2), Index.atIndex(1))).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenIntervalHasPartialHours_ThenCountOnlyHitsInsideInterval() {
+        String app = "ewm-main-service";
+        String uri = "/events/1";
+        String ip = "192.163.0.1";
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 10:59:59"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 11:15:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 12:00:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 12:59:59"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 13:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, ip, "2022-09-06 13:45:00"));
+
+        assertThatCode(() -> assertThat(statsService.getStats("2022-09-06 11:00:00", "2022-09-06 13:30:00", null,
+                false, false, UriMatch.PREFIX))
+                .as("Check return value when the interval starts and ends inside hours")
+                .isNotNull()
+                .asList()
+                .containsExactly(new EndpointStats(app, uri, 4))).doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenRequiredApproximateUnique_ThenEstimateDistinctIpsFromSketches() {
+        String app = "ewm-main-service";
+        String uri1 = "/events/1";
+        String uri2 = "/events/2";
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, "192.163.0.1", "2022-09-06 11:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, "192.163.0.1", "2022-09-06 12:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, "192.163.0.2", "2022-09-06 13:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri1, "192.163.0.3", "2022-09-06 13:50:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri2, "192.163.0.1", "2022-09-06 12:40:00"));
+
+        assertThatCode(() -> assertThat(statsService.getStats("2022-09-06 11:00:00", "2022-09-06 13:30:00", null,
+                true, true, UriMatch.PREFIX))
+                .as("Check return value when unique ips should be estimated")
+                .isNotNull()
+                .asList()
+                .containsExactly(new EndpointStats(app, uri1, 2), new EndpointStats(app, uri2, 1)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenHourHasNoIpSketch_ThenEstimateItsDistinctIpsFromRawHits() {
+        String app = "ewm-main-service";
+        String uri = "/events/1";
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.1", "2022-09-06 11:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.2", "2022-09-06 11:20:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.3", "2022-09-06 12:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.3", "2022-09-06 14:10:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.4", "2022-09-06 14:20:00"));
+        // as backfilled from hits saved before sketches were kept
+        jdbcTemplate.update("update endpoint_hits_hourly set ip_sketch = null "
+                + "where hour_start <> '2022-09-06 12:00:00'");
+
+        assertThatCode(() -> assertThat(statsService.getStats("2022-09-06 11:00:00", "2022-09-06 15:00:00",
+                new String[]{uri}, true, true, UriMatch.EXACT))
+                .as("Check return value when some hours have no ip sketch")
+                .isNotNull()
+                .asList()
+                .containsExactly(new EndpointStats(app, uri, 4)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void saveEndpointHits_WhenBatchIsSaved_ThenAllHitsAreCounted() {
+        String app = "ewm-main-service";
+        String uri1 = "/events/1";
+        String uri2 = "/events/2";
+        statsService.saveEndpointHits(List.of(
+                new InputEndpointHit(app, uri1, "192.163.0.1", "2022-09-06 11:30:00"),
+                new InputEndpointHit(app, uri1, "192.163.0.2", "2022-09-06 12:30:00"),
+                new InputEndpointHit(app, uri1, "192.163.0.2", "2022-09-06 12:40:00"),
+                new InputEndpointHit(app, uri2, "192.163.0.1", "2022-09-06 12:40:00")));
+
+        assertThatCode(() -> assertThat(statsService.getStats("2022-09-06 10:00:00", "2022-09-06 14:00:00", null,
+                false, false, UriMatch.PREFIX))
+                .as("Check return value after saving a batch of hits")
+                .isNotNull()
+                .asList()
+                .containsExactly(new EndpointStats(app, uri1, 3), new EndpointStats(app, uri2, 1)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:db/clearDb.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getStats_WhenIpv6IsWrittenDifferently_ThenCountItAsOneUniqueIp() {
+        String app = "ewm-main-service";
+        String uri = "/events/1";
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "2001:db8::1", "2022-09-06 11:30:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "2001:DB8:0:0::1", "2022-09-06 11:40:00"));
+        statsService.saveEndpointHit(new InputEndpointHit(app, uri, "192.163.0.1", "2022-09-06 11:50:00"));
+
+        assertThat(statsService.getStats("2022-09-06 11:00:00", "2022-09-06 12:00:00", null, true, false,
+                UriMatch.PREFIX))
+                .as("Check unique hits for binary stored ips")
+                .asList()
+                .containsExactly(new EndpointStats(app, uri, 2));
+    }
+}
@@ -1,18 +1,23 @@
 package ru.practicum.stats;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
-import org.assertj.core.data.Index;
+import com.querydsl.core.types.Predicate;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.EndpointStats;
 import ru.practicum.InputEndpointHit;
+import ru.practicum.UriMatch;
+import ru.practicum.stats.ingest.HitIngestBuffer;
 import ru.practicum.stats.model.EndpointHit;
 
+import javax.validation.ValidationException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.*;
 import static org.mockito.Mockito.*;
@@ -21,10 +26,23 @@ import static org.mockito.Mockito.*;
 class StatsServiceImplTest {
     @Mock
     private StatsStorage statsStorage;
-    @InjectMocks
+    @Mock
+    private HourlyHitsStorage hourlyHitsStorage;
+    @Mock
+    private HitIngestBuffer hitIngestBuffer;
+    @Mock
+    private TopHitsTracker topHitsTracker;
+    @Mock
+    private UriStorage uriStorage;
     private StatsServiceImpl statsService;
     @Captor
-    private ArgumentCaptor<EndpointHit> argumentCaptor;
+    private ArgumentCaptor<List<EndpointHit>> argumentCaptor;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new StatsServiceImpl(statsStorage, hourlyHitsStorage, uriStorage, topHitsTracker,
+                hitIngestBuffer, 0.02, 10_000);
+    }
 
     @Test
     void saveEndpointHit_WhenTimestampIsIncorrect_ThenThrowsDateTimeParseException() {
@@ -34,7 +52,7 @@ class StatsServiceImplTest {
         assertThatExceptionOfType(DateTimeParseException.class)
                 .isThrownBy(() -> statsService.saveEndpointHit(wrongDate));
 
-        verifyNoInteractions(statsStorage);
+        verifyNoInteractions(hitIngestBuffer);
     }
 
     @Test
@@ -44,18 +62,17 @@ class StatsServiceImplTest {
         String ip = "192.163.0.1";
         LocalDateTime timestamp = LocalDateTime.of(2022, 9, 6, 11, 0, 23);
         InputEndpointHit input = new InputEndpointHit(app, uri, ip, "2022-09-06 11:00:23");
-        EndpointHit output = new EndpointHit(1L, app, uri, ip, timestamp);
-        when(statsStorage.save(any(EndpointHit.class))).thenReturn(output);
+        when(hitIngestBuffer.accept(anyList())).thenReturn(true);
 
-        assertThatCode(() -> statsService.saveEndpointHit(input)).doesNotThrowAnyException();
+        assertThat(statsService.saveEndpointHit(input)).isTrue();
 
-        verify(statsStorage, Mockito.times(1)).save(argumentCaptor.capture());
+        verify(hitIngestBuffer, Mockito.times(1)).accept(argumentCaptor.capture());
 
-        assertThat(argumentCaptor.getValue())
+        assertThat(argumentCaptor.getValue().get(0))
                 .as("Check passed argument to the endpoint's hit save method")
                 .isNotNull()
-                .hasFieldOrPropertyWithValue("app", app)
-                .hasFieldOrPropertyWithValue("uri", uri)
+                .hasFieldOrPropertyWithValue("app.name", app)
+                .hasFieldOrPropertyWithValue("uri.path", uri)
                 .hasFieldOrPropertyWithValue("ip", ip)
                 .hasFieldOrPropertyWithValue("timeStamp", timestamp);
     }
@@ -64,83 +81,118 @@ class StatsServiceImplTest {
     void getStats_WhenStartOrEndTimeIsIncorrect_ThenThrowsDateTimeParseException() {
         assertThatExceptionOfType(DateTimeParseException.class)
                 .isThrownBy(() -> statsService.getStats("wrong start", "2022-09-06 11:00:23", null,
-                        false));
+                        false, false, UriMatch.PREFIX));
 
         assertThatExceptionOfType(DateTimeParseException.class)
                 .isThrownBy(() -> statsService.getStats("2022-09-06 11:00:23", "wrong end", null,
-                        false));
+                        false, false, UriMatch.PREFIX));
 
         verifyNoInteractions(statsStorage);
     }
 
     @Test
-    void getStats_WhenRequiredUnique_ThenReturnUniqueStats() {
-        String app1 = "ewm-main-service_1";
-        String app2 = "ewm-main-service_2";
-        String uri1 = "/events/1";
-        String uri2 = "/events/2";
-        String ip1 = "192.163.0.1";
-        String ip2 = "192.163.0.2";
-        String ip3 = "192.163.0.3";
-        when(statsStorage.findAll(any(BooleanExpression.class))).thenReturn(List.of(
-                new EndpointHit(1L, app1, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(2L, app1, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(3L, app1, uri1, ip2, LocalDateTime.now()),
-                new EndpointHit(4L, app2, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(5L, app2, uri1, ip2, LocalDateTime.now()),
-                new EndpointHit(6L, app2, uri1, ip3, LocalDateTime.now()),
-                new EndpointHit(7L, app2, uri2, ip3, LocalDateTime.now())
-        ));
+    void getStats_WhenRequiredUnique_ThenReturnStatsAggregatedByStorage() {
+        List<EndpointStats> aggregated = List.of(new EndpointStats("ewm-main-service_2", "/events/1", 3),
+                new EndpointStats("ewm-main-service_1", "/events/1", 2));
+        when(statsStorage.getStats(any(Predicate.class), eq(true))).thenReturn(aggregated);
 
         assertThatCode(() -> {
             List<EndpointStats> stats = statsService.getStats("2023-01-01 10:00:00", "2024-01-01 10:00:00",
-                    null, true);
+                    null, true, false, UriMatch.PREFIX);
             assertThat(stats)
                     .as("Check the return value when ips should be unique")
                     .asList()
                     .isNotNull()
-                    .hasSize(3)
-                    .contains(new EndpointStats(app2, uri1, 3), Index.atIndex(0))
-                    .contains(new EndpointStats(app1, uri1, 2), Index.atIndex(1))
-                    .contains(new EndpointStats(app2, uri2, 1), Index.atIndex(2));
+                    .isEqualTo(aggregated);
         }).doesNotThrowAnyException();
 
-        verify(statsStorage, Mockito.times(1)).findAll(any(BooleanExpression.class));
+        verify(statsStorage, Mockito.times(1)).getStats(any(Predicate.class), eq(true));
+        verifyNoInteractions(hourlyHitsStorage);
     }
 
     @Test
-    void getStats_WhenNotRequiredUnique_ThenReturnUniqueStats() {
-        String app1 = "ewm-main-service_1";
-        String app2 = "ewm-main-service_2";
-        String uri1 = "/events/1";
-        String uri2 = "/events/2";
-        String ip1 = "192.163.0.1";
-        String ip2 = "192.163.0.2";
-        String ip3 = "192.163.0.3";
-        when(statsStorage.findAll(any(BooleanExpression.class))).thenReturn(List.of(
-                new EndpointHit(1L, app1, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(2L, app1, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(3L, app1, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(4L, app1, uri1, ip2, LocalDateTime.now()),
-                new EndpointHit(5L, app2, uri1, ip1, LocalDateTime.now()),
-                new EndpointHit(6L, app2, uri1, ip2, LocalDateTime.now()),
-                new EndpointHit(7L, app2, uri1, ip3, LocalDateTime.now()),
-                new EndpointHit(8L, app2, uri2, ip3, LocalDateTime.now())
-        ));
+    void getStats_WhenNotRequiredUnique_ThenMergeHourlyAndEdgeStats() {
+        when(hourlyHitsStorage.getStats(any(Predicate.class))).thenReturn(List.of(
+                new EndpointStats("ewm-main-service_1", "/events/1", 4),
+                new EndpointStats("ewm-main-service_2", "/events/2", 1)));
+        when(statsStorage.getStats(any(Predicate.class), eq(false))).thenReturn(List.of(
+                new EndpointStats("ewm-main-service_2", "/events/2", 5),
+                new EndpointStats("ewm-main-service_2", "/events/3", 2)));
 
         assertThatCode(() -> {
-            List<EndpointStats> stats = statsService.getStats("2023-01-01 10:00:00", "2024-01-01 10:00:00",
-                    null, false);
+            List<EndpointStats> stats = statsService.getStats("2023-01-01 10:30:00", "2024-01-01 10:00:00",
+                    new String[]{"/events"}, false, false, UriMatch.PREFIX);
             assertThat(stats)
                     .as("Check return value when ips shouldn't be unique")
                     .asList()
                     .isNotNull()
-                    .hasSize(3)
-                    .contains(new EndpointStats(app1, uri1, 4), Index.atIndex(0))
-                    .contains(new EndpointStats(app2, uri1, 3), Index.atIndex(1))
-                    .contains(new EndpointStats(app2, uri2, 1), Index.atIndex(2));
+                    .containsExactly(new EndpointStats("ewm-main-service_2", "/events/2", 6),
+                            new EndpointStats("ewm-main-service_1", "/events/1", 4),
+                            new EndpointStats("ewm-main-service_2", "/events/3", 2));
         }).doesNotThrowAnyException();
 
-        verify(statsStorage, Mockito.times(1)).findAll(any(BooleanExpression.class));
+        verify(hourlyHitsStorage, Mockito.times(1)).getStats(any(Predicate.class));
+        verify(statsStorage, Mockito.times(1)).getStats(any(Predicate.class), eq(false));
+    }
+
+    @Test
+    void getStats_WhenIntervalHasNoFullHours_ThenUseOnlyRawHits() {
+        List<EndpointStats> aggregated = List.of(new EndpointStats("ewm-main-service", "/events/1", 3));
+        when(statsStorage.getStats(any(Predicate.class), eq(false))).thenReturn(aggregated);
+
+        assertThatCode(() -> assertThat(statsService.getStats("2023-01-01 10:10:00", "2023-01-01 10:50:00",
+                null, false, false, UriMatch.PREFIX))
+                .as("Check return value when the interval is shorter than an hour")
+                .asList()
+                .isEqualTo(aggregated)).doesNotThrowAnyException();
+
+        verifyNoInteractions(hourlyHitsStorage);
+    }
+
+    @Test
+    void getStats_WhenManyExactUrisAreRequested_ThenQueryThemInChunks() {
+        String[] uris = IntStream.range(0, 2500).mapToObj(i -> "/events/" + i).toArray(String[]::new);
+        when(uriStorage.findIdsByPathIn(anyList())).thenReturn(List.of(1), List.of(), List.of(3));
+        when(statsStorage.getStats(any(Predicate.class), eq(false))).thenReturn(
+                List.of(new EndpointStats("ewm-main-service", "/events/1", 2)),
+                List.of(new EndpointStats("ewm-main-service", "/events/3", 5)));
+
+        assertThatCode(() -> assertThat(statsService.getStats("2023-01-01 10:10:00", "2023-01-01 10:50:00",
+                uris, false, false, UriMatch.EXACT))
+                .as("Check return value when uris are looked up in several chunks")
+                .asList()
+                .containsExactly(new EndpointStats("ewm-main-service", "/events/3", 5),
+                        new EndpointStats("ewm-main-service", "/events/1", 2))).doesNotThrowAnyException();
+
+        verify(uriStorage, Mockito.times(3)).findIdsByPathIn(argThat(chunk -> chunk.size() <= 1000));
+        verify(statsStorage, Mockito.times(2)).getStats(any(Predicate.class), eq(false));
+    }
+
+    @Test
+    void getTopStats_WhenWindowIsValid_ThenReturnTrackerTop() {
+        List<EndpointStats> top = List.of(new EndpointStats("ewm-main-service", "/events/1", 5));
+        when(topHitsTracker.getMaxWindow()).thenReturn(Duration.ofHours(1));
+        when(topHitsTracker.getCapacity()).thenReturn(1000);
+        when(topHitsTracker.top(10, Duration.ofMinutes(30))).thenReturn(top);
+
+        assertThat(statsService.getTopStats(10, "30m")).isEqualTo(top);
+    }
+
+    @Test
+    void getTopStats_WhenWindowIsIncorrect_ThenThrowsValidationException() {
+        when(topHitsTracker.getMaxWindow()).thenReturn(Duration.ofHours(1));
+
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> statsService.getTopStats(10, "2h"));
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> statsService.getTopStats(10, "0s"));
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> statsService.getTopStats(10, "hour"));
+        verify(topHitsTracker, never()).top(anyInt(), any());
+    }
+
+    @Test
+    void getTopStats_WhenKIsLargerThanCapacity_ThenThrowsValidationException() {
+        when(topHitsTracker.getMaxWindow()).thenReturn(Duration.ofHours(1));
+        when(topHitsTracker.getCapacity()).thenReturn(1000);
+
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> statsService.getTopStats(1001, "1h"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package ru.practicum.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.EndpointStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TopHitsTrackerTest {
+    private static final String APP = "ewm-main-service";
+    @Mock
+    private StatsStorage statsStorage;
+
+    @Test
+    void top_WhenHitsAreInDifferentMinutes_ThenCountOnlyWindow() {
+        TopHitsTracker tracker = new TopHitsTracker(statsStorage, 100, 1, 60);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).plusSeconds(30);
+
+        tracker.offer(APP, "/events/1", now, 2);
+        tracker.offer(APP, "/events/2", now.minusMinutes(5), 3);
+        tracker.offer(APP, "/events/1", now.minusMinutes(30), 4);
+
+        assertThat(tracker.top(10, Duration.ofMinutes(10), now))
+                .as("Check top of the last ten minutes")
+                .containsExactly(new EndpointStats(APP, "/events/2", 3), new EndpointStats(APP, "/events/1", 2));
+        assertThat(tracker.top(1, Duration.ofHours(1), now))
+                .as("Check top of the last hour")
+                .containsExactly(new EndpointStats(APP, "/events/1", 6));
+    }
+
+    @Test
+    void offer_WhenHitIsOlderThanMaxWindow_ThenIgnoreIt() {
+        TopHitsTracker tracker = new TopHitsTracker(statsStorage, 100, 1, 60);
+        LocalDateTime now = LocalDateTime.now();
+
+        tracker.offer(APP, "/events/1", now.minusHours(2), 5);
+
+        assertThat(tracker.top(10, Duration.ofHours(1), now)).isEmpty();
+    }
+
+    @Test
+    void warmUp_WhenHitsAreStored_ThenCountThem() {
+        TopHitsTracker tracker = new TopHitsTracker(statsStorage, 100, 1, 60);
+        LocalDateTime minute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1);
+        when(statsStorage.getMinuteStats(any()))
+                .thenReturn(Map.of(minute, List.of(new EndpointStats(APP, "/events/1", 7))));
+
+        tracker.warmUp();
+
+        assertThat(tracker.top(10, Duration.ofMinutes(5)))
+                .as("Check hits counted during warm-up")
+                .containsExactly(new EndpointStats(APP, "/events/1", 7));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.stats.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.stats.HitRecorder;
+import ru.practicum.stats.model.App;
+import ru.practicum.stats.model.EndpointHit;
+import ru.practicum.stats.model.Uri;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitIngestBufferTest {
+    @Mock
+    private HitRecorder hitRecorder;
+    private HitIngestBuffer ingestBuffer;
+    private final EndpointHit hit = new EndpointHit(null, new App(null, "ewm-main-service"),
+            new Uri(null, "/events/1"), "192.163.0.1",
+            LocalDateTime.of(2022, 9, 6, 11, 0, 23));
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestBuffer.shutdown();
+    }
+
+    @Test
+    void accept_WhenModeIsSync_ThenRecordHitsImmediately() {
+        ingestBuffer = new HitIngestBuffer(hitRecorder, new SimpleMeterRegistry(), HitIngestBuffer.IngestMode.SYNC,
+                16, 4, 10, 3);
+
+        assertThat(ingestBuffer.accept(List.of(hit))).isFalse();
+
+        verify(hitRecorder, times(1)).record(List.of(hit));
+    }
+
+    @Test
+    void accept_WhenModeIsAsync_ThenWriterRecordsHitsInBatches() {
+        ingestBuffer = new HitIngestBuffer(hitRecorder, new SimpleMeterRegistry(), HitIngestBuffer.IngestMode.ASYNC,
+                16, 4, 10, 3);
+
+        assertThat(ingestBuffer.accept(List.of(hit, hit, hit, hit, hit))).isTrue();
+
+        verify(hitRecorder, timeout(1000).atLeast(2)).record(anyList());
+        verify(hitRecorder, never()).record(List.of(hit, hit, hit, hit, hit));
+    }
+
+    @Test
+    void accept_WhenBufferIsFull_ThenRecordRestSynchronously() {
+        ingestBuffer = new HitIngestBuffer(hitRecorder, new SimpleMeterRegistry(), HitIngestBuffer.IngestMode.ASYNC,
+                2, 100, 60_000, 3);
+
+        assertThat(ingestBuffer.accept(List.of(hit, hit, hit))).isFalse();
+
+        verify(hitRecorder, times(1)).record(List.of(hit));
+    }
+
+    @Test
+    void shutdown_WhenHitsAreQueued_ThenWriteThemBeforeStopping() throws InterruptedException {
+        ingestBuffer = new HitIngestBuffer(hitRecorder, new SimpleMeterRegistry(), HitIngestBuffer.IngestMode.ASYNC,
+                16, 100, 60_000, 3);
+        ingestBuffer.accept(List.of(hit, hit));
+
+        ingestBuffer.shutdown();
+
+        verify(hitRecorder, times(1)).record(List.of(hit, hit));
+    }
+
+    @Test
+    void shutdown_WhenWriteFailsOnce_ThenRetryBatchInsteadOfDroppingIt() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ingestBuffer = new HitIngestBuffer(hitRecorder, meterRegistry, HitIngestBuffer.IngestMode.ASYNC,
+                16, 100, 10, 3);
+        when(hitRecorder.record(anyList()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(List.of(hit, hit));
+        ingestBuffer.accept(List.of(hit, hit));
+
+        ingestBuffer.shutdown();
+
+        verify(hitRecorder, times(2)).record(List.of(hit, hit));
+        assertThat(meterRegistry.counter("stats.ingest.hits.written").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("stats.ingest.hits.failed").count()).isZero();
+    }
+
+    @Test
+    void shutdown_WhenWriteKeepsFailing_ThenDropBatchAfterBoundedAttempts() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ingestBuffer = new HitIngestBuffer(hitRecorder, meterRegistry, HitIngestBuffer.IngestMode.ASYNC,
+                16, 100, 10, 3);
+        when(hitRecorder.record(anyList())).thenThrow(new IllegalStateException("database is down"));
+        ingestBuffer.accept(List.of(hit, hit));
+
+        ingestBuffer.shutdown();
+
+        verify(hitRecorder, times(3)).record(List.of(hit, hit));
+        assertThat(meterRegistry.counter("stats.ingest.hits.failed").count()).isEqualTo(2);
+    }
+}
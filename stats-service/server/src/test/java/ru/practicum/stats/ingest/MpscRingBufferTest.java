@@ -0,0 +1,79 @@
+package ru.practicum.stats.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class MpscRingBufferTest {
+    @Test
+    void offer_WhenBufferIsFull_ThenRejectElementUntilDrained() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(4)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 3)).isEqualTo(3);
+        assertThat(drained).containsExactly(0, 1, 2);
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void constructor_WhenCapacityIsNotPowerOfTwo_ThenThrowsIllegalArgumentException() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new MpscRingBuffer<>(10));
+    }
+
+    @Test
+    void drainTo_WhenManyProducersOffer_ThenConsumerGetsEveryElementInProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(new long[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        long[] next = new long[producers];
+        List<long[]> batch = new ArrayList<>();
+        int received = 0;
+        while (received < producers * perProducer) {
+            batch.clear();
+            received += buffer.drainTo(batch, 256);
+            for (long[] element : batch) {
+                assertThat(element[1]).isEqualTo(next[(int) element[0]]++);
+            }
+        }
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(next).containsOnly(perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
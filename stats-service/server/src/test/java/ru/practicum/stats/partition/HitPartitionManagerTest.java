@@ -0,0 +1,76 @@
+package ru.practicum.stats.partition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitPartitionManagerTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    private final LocalDate today = LocalDate.of(2023, 1, 10);
+
+    @Test
+    void maintainPartitions_WhenTableIsPartitioned_ThenCreatePartitionsAheadAndDropExpired() {
+        HitPartitionManager manager = new HitPartitionManager(jdbcTemplate, 1, 2, 3,
+                HitPartitionManager.RetentionAction.DROP);
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("p"));
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("endpoint_hits_p20230106", "endpoint_hits_p20230107", "endpoint_hits_p20230110"));
+
+        manager.maintainPartitions(today);
+
+        verify(jdbcTemplate).execute("create table if not exists endpoint_hits_p20230110 partition of endpoint_hits " +
+                "for values from ('2023-01-10') to ('2023-01-11')");
+        verify(jdbcTemplate).execute(contains("endpoint_hits_p20230111 partition of"));
+        verify(jdbcTemplate).execute(contains("endpoint_hits_p20230112 partition of"));
+        verify(jdbcTemplate).execute("drop table endpoint_hits_p20230106");
+        verify(jdbcTemplate, never()).execute("drop table endpoint_hits_p20230107");
+        verify(jdbcTemplate, never()).execute("drop table endpoint_hits_p20230110");
+    }
+
+    @Test
+    void maintainPartitions_WhenRetentionActionIsDetach_ThenDetachExpiredPartition() {
+        HitPartitionManager manager = new HitPartitionManager(jdbcTemplate, 1, 0, 3,
+                HitPartitionManager.RetentionAction.DETACH);
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("p"));
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("endpoint_hits_p20230101"));
+
+        manager.maintainPartitions(today);
+
+        verify(jdbcTemplate).execute("alter table endpoint_hits detach partition endpoint_hits_p20230101");
+    }
+
+    @Test
+    void maintainPartitions_WhenTableIsNotPartitioned_ThenDoNothing() {
+        HitPartitionManager manager = new HitPartitionManager(jdbcTemplate, 1, 2, 3,
+                HitPartitionManager.RetentionAction.DROP);
+        when(jdbcTemplate.queryForList(contains("relkind"), eq(String.class))).thenReturn(List.of("r"));
+
+        manager.maintainPartitions(today);
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void partitionStart_WhenIntervalIsWeek_ThenAlignToIntervalBoundary() {
+        HitPartitionManager manager = new HitPartitionManager(jdbcTemplate, 7, 2, 0,
+                HitPartitionManager.RetentionAction.DROP);
+
+        LocalDate start = manager.partitionStart(today);
+
+        assertThat(start).isAfterOrEqualTo(today.minusDays(6)).isBeforeOrEqualTo(today);
+        assertThat(manager.partitionStart(start.plusDays(6))).isEqualTo(start);
+        assertThat(manager.partitionStart(start.plusDays(7))).isEqualTo(start.plusDays(7));
+    }
+}
@@ -0,0 +1,97 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void withRelativeError_WhenErrorIsTwoPercent_ThenUseFourThousandRegisters() {
+        assertThat(HyperLogLog.withRelativeError(0.02).getPrecision())
+                .as("Check precision chosen for the relative error")
+                .isEqualTo(12);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> HyperLogLog.withRelativeError(0));
+    }
+
+    @Test
+    void estimate_WhenValuesRepeat_ThenCountOnlyDistinctValues() {
+        HyperLogLog sketch = new HyperLogLog(12);
+
+        for (int i = 0; i < 3; i++) {
+            for (int ip = 0; ip < 1000; ip++) {
+                sketch.offer("10.0." + (ip / 256) + "." + (ip % 256));
+            }
+        }
+
+        assertThat(sketch.estimate())
+                .as("Check estimate of a small distinct count")
+                .isCloseTo(1000, within(20L));
+    }
+
+    @Test
+    void estimate_WhenManyDistinctValues_ThenStayWithinRelativeError() {
+        HyperLogLog sketch = HyperLogLog.withRelativeError(0.02);
+
+        for (int i = 0; i < 100_000; i++) {
+            sketch.offer("192.168." + i);
+        }
+
+        assertThat(sketch.estimate())
+                .as("Check estimate of a large distinct count")
+                .isCloseTo(100_000, within(6_000L));
+    }
+
+    @Test
+    void merge_WhenSketchesOverlap_ThenEstimateUnion() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+
+        for (int i = 0; i < 20_000; i++) {
+            first.offer("ip-" + i);
+            second.offer("ip-" + (i + 10_000));
+        }
+
+        assertThat(first.merge(second).estimate())
+                .as("Check estimate of merged sketches")
+                .isCloseTo(30_000, within(1_800L));
+    }
+
+    @Test
+    void merge_WhenPrecisionsDiffer_ThenMergeAtLowerPrecision() {
+        HyperLogLog fine = new HyperLogLog(14);
+        HyperLogLog coarse = new HyperLogLog(10);
+
+        for (int i = 0; i < 20_000; i++) {
+            fine.offer("ip-" + i);
+            coarse.offer("ip-" + (i + 10_000));
+        }
+
+        HyperLogLog merged = fine.merge(coarse);
+
+        assertThat(merged.getPrecision()).isEqualTo(10);
+        assertThat(merged.estimate())
+                .as("Check estimate of merged sketches with different precisions")
+                .isCloseTo(30_000, within(3_000L));
+    }
+
+    @Test
+    void toBytes_WhenSketchIsSparseOrDense_ThenRestoreSameEstimate() {
+        HyperLogLog sparse = new HyperLogLog(12);
+        HyperLogLog dense = new HyperLogLog(12);
+        sparse.offer("192.163.0.1");
+        sparse.offer("192.163.0.2");
+
+        for (int i = 0; i < 50_000; i++) {
+            dense.offer("ip-" + i);
+        }
+
+        assertThat(sparse.toBytes()).as("Check sparse encoding size").hasSizeLessThan(16);
+        assertThat(HyperLogLog.fromBytes(sparse.toBytes()).estimate()).isEqualTo(sparse.estimate());
+        assertThat(dense.toBytes()).as("Check dense encoding size").hasSize(2 + 4096);
+        assertThat(HyperLogLog.fromBytes(dense.toBytes()).estimate()).isEqualTo(dense.estimate());
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class SpaceSavingTest {
+
+    @Test
+    void top_WhenFewKeys_ThenCountExactly() {
+        SpaceSaving<String> summary = new SpaceSaving<>(10);
+
+        summary.offer("/events/1", 3);
+        summary.offer("/events/2", 1);
+        summary.offer("/events/1", 2);
+
+        assertThat(summary.top(5))
+                .as("Check exact counts while keys fit into the summary")
+                .containsExactly(Map.entry("/events/1", 5L), Map.entry("/events/2", 1L));
+    }
+
+    @Test
+    void top_WhenManyRareKeys_ThenKeepHeavyHittersWithUpperBoundCounts() {
+        SpaceSaving<String> summary = new SpaceSaving<>(20);
+        Map<String, Long> exact = new HashMap<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            String key = i % 4 == 0 ? "/events/" + (i % 3) : "/events/rare/" + i;
+            summary.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        List<Map.Entry<String, Long>> top = summary.top(3);
+        assertThat(top.stream().map(Map.Entry::getKey).collect(Collectors.toSet()))
+                .as("Check keys seen more often than total / capacity")
+                .containsExactlyInAnyOrder("/events/0", "/events/1", "/events/2");
+        top.forEach(entry -> assertThat(entry.getValue())
+                .as("Check count of %s is an upper bound", entry.getKey())
+                .isGreaterThanOrEqualTo(exact.get(entry.getKey()))
+                .isLessThanOrEqualTo(exact.get(entry.getKey()) + 10_000 / 20));
+        assertThat(summary.size()).isEqualTo(20);
+    }
+
+    @Test
+    void addTo_WhenSummariesAreCombined_ThenSumCounts() {
+        SpaceSaving<String> first = new SpaceSaving<>(2);
+        SpaceSaving<String> second = new SpaceSaving<>(2);
+        first.offer("/events/1", 2);
+        second.offer("/events/1", 3);
+        second.offer("/events/2", 1);
+        Map<String, Long> totals = new HashMap<>();
+
+        first.addTo(totals);
+        second.addTo(totals);
+
+        assertThat(totals).containsOnly(Map.entry("/events/1", 5L), Map.entry("/events/2", 1L));
+    }
+
+    @Test
+    void constructor_WhenCapacityIsNotPositive_ThenThrowIllegalArgumentException() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SpaceSaving<>(0));
+    }
+}
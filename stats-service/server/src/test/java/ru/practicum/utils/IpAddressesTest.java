@@ -0,0 +1,33 @@
+package ru.practicum.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.validation.ValidationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class IpAddressesTest {
+    @Test
+    void toBytes_WhenIpv4_ThenReturnFourBytes() {
+        assertThat(IpAddresses.toBytes("192.163.0.1")).containsExactly(192, 163, 0, 1);
+    }
+
+    @Test
+    void toBytes_WhenIpv6_ThenReturnSixteenBytes() {
+        assertThat(IpAddresses.toBytes("2001:db8::1")).hasSize(16);
+    }
+
+    @Test
+    void normalize_WhenIpv6IsWrittenDifferently_ThenReturnSameText() {
+        assertThat(IpAddresses.normalize("2001:DB8:0::1")).isEqualTo(IpAddresses.normalize("2001:db8::0:1"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"256.1.1.1", "localhost", "1.2.3", "2001:db8::g", ""})
+    void toBytes_WhenIpIsIncorrect_ThenThrowsValidationException(String ip) {
+        assertThatExceptionOfType(ValidationException.class).isThrownBy(() -> IpAddresses.toBytes(ip));
+    }
+}
@@ -1 +1,2 @@
 delete from endpoint_hits;
+delete from endpoint_hits_hourly;